@@ -1,16 +1,22 @@
-import java.io.BufferedReader;
 import java.util.Scanner;
 import java.io.FileReader;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.FileWriter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.NoSuchElementException;
 import user.*;
 import concert.*;
 import booking.*;
 import exception.*;
+import storage.*;
 
 /**
  * Engine that manages program execution, I/O Handling and CMD Args
@@ -20,18 +26,31 @@ import exception.*;
 public class TicketManagementEngine {
 
     private static final String defaultPath = "assets/venue_default.txt";
-    private static final Scanner KEYBOARD = User.scanner;
+    private static final Scanner KEYBOARD = User.CONSOLE;
     private static final int EXIT = 0;
-    private static final char VIP = 'V';
-    private static final char SEATING = 'S';
-    private static final char STANDING = 'T';
-    private static final int BRACKET_LENGTH = 3;
     private static final String CUSTOMER_MODE = "--customer";
     private static final String ADMIN_MODE = "--admin";
+    private static final String OPTION_PREFIX = "--";
+    private static final String JOURNAL_OPTION = "--journal";
+    private static final String COMPACT_AFTER_OPTION = "--compact-after";
+    private static final String SNAPSHOT_OPTION = "--snapshot";
+    private static final String PARALLEL_LOAD_OPTION = "--parallel-load";
+    private static final String FLUSH_INTERVAL_OPTION = "--flush-interval";
+    private static final String SEAT_MAP_OPTION = "--seat-map";
+    private static final String SERVER_OPTION = "--server";
+    private static final String PORT_OPTION = "--port";
+    private static final int DEFAULT_PORT = 7070;
+    private static final String DURABILITY_OPTION = "--durability";
+    private static final String GROUP_COMMIT_MS_OPTION = "--group-commit-ms";
+    private static final String GROUP_COMMIT_SIZE_OPTION = "--group-commit-size";
     private static final int MINIMUM_CONCERT_LENGTH = 8;
     private static final int MINIMUM_BOOKING_LENGTH = 10;
     private static final int MINIMUM_CUSTOMER_LENGTH = 3;
 
+    // held while the customer file or the booking file is changed by a session
+    private final Object customerFileLock = new Object();
+    private final Object bookingFileLock = new Object();
+
     /**
      * Main method that starts the application.
      *
@@ -41,15 +60,17 @@ public class TicketManagementEngine {
 
         TicketManagementEngine tme = new TicketManagementEngine();
 
-        // handle the args to extract user mode and file names
+        // handle the args to extract user mode, options and file names
+        HashMap<String, String> options = new HashMap<String, String>();
+        args = tme.extractOptions(args, options);
         String mode = args[0];
         String customerId = null;
         String password = null;
         ArrayList<String> filePaths = new ArrayList<String>();
         ArrayList<String> venuePaths = new ArrayList<String>();
         ArrayList<Concert> concerts = new ArrayList<Concert>();
-        HashMap<String, Venue> venues = new HashMap<String, Venue>();
-        ArrayList<Booking> bookings = new ArrayList<Booking>();
+        VenueCatalog venues = null;
+        BookingRepository bookings = new BookingRepository();
 
         Admin admin = null;
         Customer customer = null;
@@ -70,40 +91,60 @@ public class TicketManagementEngine {
             customerPath = filePaths.get(0);
             concertPath = filePaths.get(1);
             bookingPath = filePaths.get(2);
+            BookingJournal journal = new BookingJournal(bookingPath,
+                    tme.getIntOption(options, COMPACT_AFTER_OPTION, BookingJournal.DEFAULT_COMPACTION_THRESHOLD));
             try {
                 for (int i = 3; i < filePaths.size(); i++) {
                     venuePaths.add(filePaths.get(i));
                 }
-                if (customerId == null) { // if id and password is missing
+                boolean server = options.containsKey(SERVER_OPTION);
+                if (server) {
+                    // customers log in through their own sessions
+                } else if (customerId == null) { // if id and password is missing
                     customer = tme.createNewCustomer(customerPath);
                     tme.writeToCustomerFile(customer, customerPath);
                 } else {
                     customer = tme.loadCustomer(customerId, password, customerPath);
                 }
-                if (customer != null) {
+                if (customer != null || server) {
                     // load the data
                     concerts = tme.loadConcerts(concertPath);
-                    bookings = tme.loadBookings(bookingPath);
-                    venues = tme.loadVenues(concerts, venuePaths, tme);
-
-                    tme.displayMessage(mode, customer.getName());
-
-                    // run the user menu
-                    boolean runLoop = true;
-                    while (runLoop) {
-                        System.out.println("Select a concert or 0 to exit");
-                        customer.showTimings(concerts, venues, bookings);
-                        System.out.print("> ");
-                        int concertId = KEYBOARD.nextInt();
-                        if (concertId == EXIT) {
-                            runLoop = false;
-                            System.out.println("Exiting customer mode");
-                            // save the booking/customer/concert data back to files
-                            customer.writeToBookingFile(bookings, bookingPath);
-                        } else {
-                            customer.mainMenu(concerts, venues, bookings, concertId);
-
-                        }
+                    bookings = tme.loadBookings(bookingPath, options.containsKey(PARALLEL_LOAD_OPTION));
+                    SeatMapFile seatMap = options.containsKey(SEAT_MAP_OPTION) ? SeatMapFile.open(bookingPath) : null;
+                    venues = tme.loadVenues(concerts, bookings, venuePaths, tme, seatMap);
+
+                    if (server) {
+                        BookingSequencer sequencer = tme.createSequencer(bookings, journal, options);
+                        // show how bookings were committed when the server is stopped
+                        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                            sequencer.close();
+                            if (seatMap != null) {
+                                seatMap.close();
+                            }
+                            System.out.println(sequencer.getMetrics().getSummary());
+                        }));
+                        tme.runServer(tme.getIntOption(options, PORT_OPTION, DEFAULT_PORT), customerPath, concerts,
+                                venues, bookings, bookingPath, journal, sequencer, options);
+                    } else if (options.containsKey(DURABILITY_OPTION)) {
+                        tme.displayMessage(mode, customer.getName());
+
+                        // run the user menu, saving each booking as it is made
+                        BookingSequencer sequencer = tme.createSequencer(bookings, journal, options);
+                        customer.setSequencer(sequencer);
+                        tme.runCustomer(customer, concerts, venues, bookings, KEYBOARD, System.out);
+                        tme.saveBookings(customer, bookings, bookingPath, journal, options, sequencer);
+                        sequencer.close();
+                        System.out.println(sequencer.getMetrics().getSummary());
+                    } else {
+                        tme.displayMessage(mode, customer.getName());
+
+                        // run the user menu
+                        tme.runCustomer(customer, concerts, venues, bookings, KEYBOARD, System.out);
+                        // save the booking/customer/concert data back to files
+                        tme.saveBookings(customer, bookings, bookingPath, journal, options);
+                    }
+                    if (seatMap != null && !server) {
+                        seatMap.close();
                     }
                 }
             } catch (IncorrectPasswordException e) {
@@ -125,16 +166,24 @@ public class TicketManagementEngine {
                 }
                 // load the data
                 concerts = tme.loadConcerts(concertPath);
-                bookings = tme.loadBookings(bookingPath);
-                venues = tme.loadVenues(concerts, venuePaths, tme);
+                bookings = tme.loadBookings(bookingPath, options.containsKey(PARALLEL_LOAD_OPTION));
+                SeatMapFile seatMap = options.containsKey(SEAT_MAP_OPTION) ? SeatMapFile.open(bookingPath) : null;
+                venues = tme.loadVenues(concerts, bookings, venuePaths, tme, seatMap);
 
                 tme.displayMessage(mode); // admin dose not have name.
 
                 // run the user menu
-                admin = new Admin();
+                admin = new Admin(new ConcertWriter(concertPath, concerts,
+                        tme.getIntOption(options, FLUSH_INTERVAL_OPTION, ConcertWriter.DEFAULT_FLUSH_INTERVAL)));
                 admin.mainMenu(concerts, venues, bookings);
                 // save the booking/customer/concert data back to files
                 admin.updateConcert(concerts, concertPath);
+                if (options.containsKey(SNAPSHOT_OPTION) && !BookingSnapshot.isCurrent(bookingPath)) {
+                    BookingSnapshot.write(bookings, bookingPath);
+                }
+                if (seatMap != null) {
+                    seatMap.close();
+                }
             } catch (FileNotFoundException e) {
                 System.out.println(customerPath + " (No such file or directory)");
             }
@@ -143,6 +192,230 @@ public class TicketManagementEngine {
         }
     }
 
+    /**
+     * Separates options such as --journal or --compact-after=500 from the user
+     * mode and file paths.
+     *
+     * @param args    Command line arguments.
+     * @param options A map to store option names and their values.
+     * @return The command line arguments without the options.
+     */
+    public String[] extractOptions(String[] args, HashMap<String, String> options) {
+        ArrayList<String> remaining = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0 && args[i].startsWith(OPTION_PREFIX)) {
+                int index = args[i].indexOf("=");
+                if (index < 0) {
+                    options.put(args[i], "true");
+                } else {
+                    options.put(args[i].substring(0, index), args[i].substring(index + 1));
+                }
+            } else {
+                remaining.add(args[i]);
+            }
+        }
+        return remaining.toArray(new String[0]);
+    }
+
+    /**
+     * Gets a numeric option, falling back to a default value.
+     *
+     * @param options      A map of option names to their values.
+     * @param name         The option name.
+     * @param defaultValue The value used when the option is missing or invalid.
+     * @return The value of the option.
+     */
+    public int getIntOption(HashMap<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null || !isNumeric(value)) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Starts the sequencer that makes and commits bookings, with the commit
+     * policy given by the durability options.
+     *
+     * @param bookings A list of bookings.
+     * @param journal  The journal of the booking file.
+     * @param options  A map of option names to their values.
+     * @return The started sequencer.
+     */
+    public BookingSequencer createSequencer(BookingRepository bookings, BookingJournal journal,
+            HashMap<String, String> options) {
+        CommitPolicy policy = CommitPolicy.fromName(options.get(DURABILITY_OPTION));
+        BookingSequencer sequencer = new BookingSequencer(bookings, journal, BookingSequencer.DEFAULT_CAPACITY,
+                policy == null ? CommitPolicy.GROUP : policy,
+                getIntOption(options, GROUP_COMMIT_MS_OPTION, BookingSequencer.DEFAULT_GROUP_MILLIS),
+                getIntOption(options, GROUP_COMMIT_SIZE_OPTION, BookingSequencer.DEFAULT_GROUP_SIZE));
+        sequencer.start();
+        return sequencer;
+    }
+
+    /**
+     * Runs the concert menu of a customer until they exit.
+     *
+     * @param customer The customer.
+     * @param concerts A list of concerts.
+     * @param venues   A catalog of the venues of each concert.
+     * @param bookings A list of bookings.
+     * @param in       The scanner that reads the customer's input.
+     * @param out      The stream that shows output to the customer.
+     */
+    public void runCustomer(Customer customer, ArrayList<Concert> concerts, VenueCatalog venues,
+            BookingRepository bookings, Scanner in, PrintStream out) {
+        boolean runLoop = true;
+        while (runLoop) {
+            out.println("Select a concert or 0 to exit");
+            customer.showTimings(concerts, venues, bookings);
+            out.print("> ");
+            int concertId = in.nextInt();
+            if (concertId == EXIT) {
+                runLoop = false;
+                out.println("Exiting customer mode");
+            } else {
+                customer.mainMenu(concerts, venues, bookings, concertId);
+
+            }
+        }
+    }
+
+    /**
+     * Saves the bookings to the booking file, or to its journal if the journal
+     * option is given. Sessions of the server save one at a time.
+     *
+     * @param customer    The customer whose session is saving.
+     * @param bookings    A list of bookings.
+     * @param bookingPath The path to the booking file.
+     * @param journal     The journal of the booking file.
+     * @param options     A map of option names to their values.
+     */
+    public void saveBookings(Customer customer, BookingRepository bookings, String bookingPath,
+            BookingJournal journal, HashMap<String, String> options) {
+        synchronized (bookingFileLock) {
+            if (options.containsKey(JOURNAL_OPTION)) {
+                journal.append(bookings);
+                if (journal.needsCompaction()) {
+                    journal.compact(bookings);
+                }
+            } else {
+                customer.writeToBookingFile(bookings, bookingPath);
+                journal.clear();
+            }
+            if (options.containsKey(SNAPSHOT_OPTION)) {
+                BookingSnapshot.write(bookings, bookingPath);
+            }
+        }
+    }
+
+    /**
+     * Saves the bookings on the thread of the sequencer, so that no booking is
+     * being written meanwhile.
+     *
+     * @param customer    The customer whose session is saving.
+     * @param bookings    A list of bookings.
+     * @param bookingPath The path to the booking file.
+     * @param journal     The journal of the booking file.
+     * @param options     A map of option names to their values.
+     * @param sequencer   The sequencer that makes the bookings.
+     */
+    public void saveBookings(Customer customer, BookingRepository bookings, String bookingPath,
+            BookingJournal journal, HashMap<String, String> options, BookingSequencer sequencer) {
+        sequencer.execute(() -> saveBookings(customer, bookings, bookingPath, journal, options)).join();
+    }
+
+    /**
+     * Accepts customer sessions on a local port until the program is stopped.
+     * The concerts, venues and bookings stay loaded, and each session runs on
+     * its own virtual thread with its own input and output. The bookings of
+     * every session are made by one sequencer, which journals them as they are
+     * made.
+     *
+     * @param port         The port to listen on.
+     * @param customerPath The path to the customer file.
+     * @param concerts     A list of concerts.
+     * @param venues       A catalog of the venues of each concert.
+     * @param bookings     A list of bookings.
+     * @param bookingPath  The path to the booking file.
+     * @param journal      The journal of the booking file.
+     * @param sequencer    The sequencer that makes the bookings.
+     * @param options      A map of option names to their values.
+     */
+    public void runServer(int port, String customerPath, ArrayList<Concert> concerts, VenueCatalog venues,
+            BookingRepository bookings, String bookingPath, BookingJournal journal, BookingSequencer sequencer,
+            HashMap<String, String> options) {
+        try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            System.out.println("Ticket Management System is listening on port " + server.getLocalPort());
+            while (true) {
+                Socket socket = server.accept();
+                Thread.ofVirtual().start(() -> serveSession(socket, customerPath, concerts, venues, bookings,
+                        bookingPath, journal, sequencer, options));
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot listen on port " + port);
+        }
+    }
+
+    /**
+     * Runs the session of one customer connected to the server. The customer
+     * logs in with their ID and password, or registers, and then uses the same
+     * menus as on the command line. The bookings are saved by the sequencer
+     * when the session ends, even if the connection is lost.
+     *
+     * @param socket       The connection of the session.
+     * @param customerPath The path to the customer file.
+     * @param concerts     A list of concerts.
+     * @param venues       A catalog of the venues of each concert.
+     * @param bookings     A list of bookings.
+     * @param bookingPath  The path to the booking file.
+     * @param journal      The journal of the booking file.
+     * @param sequencer    The sequencer that makes the bookings.
+     * @param options      A map of option names to their values.
+     */
+    public void serveSession(Socket socket, String customerPath, ArrayList<Concert> concerts, VenueCatalog venues,
+            BookingRepository bookings, String bookingPath, BookingJournal journal, BookingSequencer sequencer,
+            HashMap<String, String> options) {
+        Customer customer = null;
+        try (Socket connection = socket) {
+            Scanner in = new Scanner(connection.getInputStream(), StandardCharsets.UTF_8);
+            PrintStream out = new PrintStream(connection.getOutputStream(), true, StandardCharsets.UTF_8);
+            try {
+                out.print("Enter your customer ID and password, or press enter to register: ");
+                String[] login = in.nextLine().trim().split("\\s+");
+                if (login[0].isEmpty()) {
+                    customer = createNewCustomer(customerPath, in, out);
+                    synchronized (customerFileLock) {
+                        writeToCustomerFile(customer, customerPath);
+                    }
+                } else {
+                    synchronized (customerFileLock) {
+                        customer = loadCustomer(login[0], login.length > 1 ? login[1] : "", customerPath);
+                    }
+                }
+                if (customer != null) {
+                    customer.setSession(in, out);
+                    customer.setSequencer(sequencer);
+                    displayMessage(out, CUSTOMER_MODE, customer.getName());
+                    runCustomer(customer, concerts, venues, bookings, in, out);
+                }
+            } catch (IncorrectPasswordException e) {
+                out.println(e.getMessage());
+            } catch (NotFoundException e) {
+                out.println(e.getMessage());
+            } catch (NoSuchElementException e) {
+                // the customer closed the connection or typed something that is not a menu option
+                out.println("Invalid Input. Ending this session");
+            }
+        } catch (IOException e) {
+            // the connection was lost
+        } finally {
+            if (customer != null) {
+                saveBookings(customer, bookings, bookingPath, journal, options, sequencer);
+            }
+        }
+    }
+
     /**
      * Displays a welcome message based on the mode.
      *
@@ -150,14 +423,25 @@ public class TicketManagementEngine {
      * @param name Customer name (if applicable)
      */
     public void displayMessage(String mode, String... name) {
+        displayMessage(System.out, mode, name);
+    }
+
+    /**
+     * Displays a welcome message based on the mode.
+     *
+     * @param out  The stream that shows the message.
+     * @param mode The mode of the user (customer or admin)
+     * @param name Customer name (if applicable)
+     */
+    public void displayMessage(PrintStream out, String mode, String... name) {
         if (mode.equals(CUSTOMER_MODE)) {
-            System.out.println("Welcome " + name[0] + " to Ticket Management System");
+            out.println("Welcome " + name[0] + " to Ticket Management System");
         } else if (mode.equals(ADMIN_MODE)) {
-            System.out.println("Welcome to Ticket Management System Admin Mode.");
+            out.println("Welcome to Ticket Management System Admin Mode.");
         } else {
-            System.out.println("Invalid user mode. Terminating program now.");
+            out.println("Invalid user mode. Terminating program now.");
         }
-        System.out.print("\n" +
+        out.print("\n" +
                 " ________  ___ _____ \n" +
                 "|_   _|  \\/  |/  ___|\n" +
                 "  | | | .  . |\\ `--. \n" +
@@ -179,7 +463,9 @@ public class TicketManagementEngine {
     }
 
     /**
-     * Loads a customer from a file based on their ID and password.
+     * Loads a customer from a file based on their ID and password. The customer
+     * is found through the index next to the customer file, which is brought
+     * up to date first.
      *
      * @param customerId   The customer's ID.
      * @param password     The customer's password.
@@ -190,32 +476,58 @@ public class TicketManagementEngine {
      */
     public Customer loadCustomer(String customerId, String password, String customerPath)
             throws IncorrectPasswordException, NotFoundException {
-        BufferedReader br = null;
+        String[] info;
+        if (!isNumeric(customerId)) {
+            // e.g. a server client typed a name, which no customer line can match
+            throw new NotFoundException("Customer does not exist. Terminating Program");
+        }
+        LineErrors errors = new LineErrors(true);
         try {
-            // find corresponding and candidate(maxId+1) concertId
-            br = new BufferedReader(new FileReader(customerPath));
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] info = line.split(",");
-                if (info.length < MINIMUM_CUSTOMER_LENGTH) {
-                    try {
-                        throw new InvalidLineException("Invalid Customer Files. Skipping this line.");
-                    } catch (InvalidLineException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
+            info = new CustomerIndex(customerPath).find(customerId, errors);
+        } catch (IOException e) {
+            // the index cannot be used, e.g. in a read-only directory
+            return loadCustomerHelper(customerId, password, customerPath);
+        } finally {
+            errors.printSummary();
+        }
+        if (info == null) {
+            throw new NotFoundException("Customer does not exist. Terminating Program");
+        }
+        if (info[2].equals(password)) {
+            return new Customer(customerId, info[1], password);
+        } else {
+            throw new IncorrectPasswordException("Incorrect Password. Terminating Program");
+        }
+    }
+
+    /**
+     * Helper method to load a customer by reading the customer file from the
+     * start.
+     *
+     * @param customerId   The customer's ID.
+     * @param password     The customer's password.
+     * @param customerPath The path to the customer file.
+     * @return The loaded customer object.
+     * @throws IncorrectPasswordException If the password is incorrect.
+     * @throws NotFoundException          If the customer is not found.
+     */
+    public Customer loadCustomerHelper(String customerId, String password, String customerPath)
+            throws IncorrectPasswordException, NotFoundException {
+        LineErrors errors = new LineErrors(true);
+        try (CsvReader reader = new CsvReader(customerPath)) {
+            // find corresponding customerId
+            while (reader.nextLine()) {
+                if (reader.getFieldCount() < MINIMUM_CUSTOMER_LENGTH) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_CUSTOMER_LINE);
+                    continue;
                 }
-                if (!isNumeric(info[0])) {
-                    try {
-                        throw new InvalidLineException("Customer Id is in incorrect format. Skipping this line.");
-                    } catch (InvalidLineException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
+                if (!reader.isInt(0)) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_CUSTOMER_ID);
+                    continue;
                 }
-                if (info[0].equals(customerId)) {
-                    if (info[2].equals(password)) {
-                        String name = info[1];
+                if (reader.fieldEquals(0, customerId)) {
+                    if (reader.getString(2).equals(password)) {
+                        String name = reader.getString(1);
                         return new Customer(customerId, name, password);
                     } else {
                         throw new IncorrectPasswordException("Incorrect Password. Terminating Program");
@@ -227,6 +539,8 @@ public class TicketManagementEngine {
             System.out.println(customerPath + " (No such file or directory)");
         } catch (IOException e) {
             System.out.println(customerPath + " (No such file or directory)");
+        } finally {
+            errors.printSummary();
         }
         return null;
     }
@@ -238,33 +552,33 @@ public class TicketManagementEngine {
      * @return New customer object.
      */
     public Customer createNewCustomer(String customerPath) {
-        BufferedReader br = null;
+        return createNewCustomer(customerPath, KEYBOARD, System.out);
+    }
+
+    /**
+     * Creates a new customer, asking for their name and password through a
+     * session.
+     *
+     * @param customerPath The path to the customer file.
+     * @param in           The scanner that reads the customer's input.
+     * @param out          The stream that shows output to the customer.
+     * @return New customer object.
+     */
+    public Customer createNewCustomer(String customerPath, Scanner in, PrintStream out) {
         int nextId = 1;
         String name = null;
         String password = null;
-        String line;
         try {
-            // find corresponding and candidate(maxId+1) concertId
-            br = new BufferedReader(new FileReader(customerPath));
-            while ((line = br.readLine()) != null) {
-                nextId++;
-            }
-            System.out.print("Enter your name: ");
-            name = KEYBOARD.nextLine();
-            System.out.print("Enter your password: ");
-            password = KEYBOARD.nextLine();
+            IdSequence sequence = new IdSequence(customerPath);
+            out.print("Enter your name: ");
+            name = in.nextLine();
+            out.print("Enter your password: ");
+            password = in.nextLine();
+            nextId = sequence.next();
         } catch (FileNotFoundException e) {
             System.err.println(customerPath + "(No such file or directory)");
         } catch (IOException e) {
             System.err.println(customerPath + "(No such file or directory)");
-        } finally {
-            try {
-                if (br != null) {
-                    br.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
         return new Customer(nextId + "", name, password);
     }
@@ -291,203 +605,245 @@ public class TicketManagementEngine {
      * @return A list of concerts.
      */
     public ArrayList<Concert> loadConcerts(String concertCsvPath) {
-        BufferedReader br = null;
         ArrayList<Concert> concerts = new ArrayList<Concert>();
-        try {
-            br = new BufferedReader(new FileReader(concertCsvPath));
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < MINIMUM_CONCERT_LENGTH) {
-                    try {
-                        throw new InvalidLineException("Invalid Concert Files. Skipping this line.");
-                    } catch (InvalidLineException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
+        LineErrors errors = new LineErrors(true);
+        try (CsvReader reader = new CsvReader(concertCsvPath)) {
+            while (reader.nextLine()) {
+                if (reader.getFieldCount() < MINIMUM_CONCERT_LENGTH) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_CONCERT_LINE);
+                    continue;
                 }
-                if (!isNumeric(parts[0])) {
-                    try {
-                        throw new InvalidLineException("Concert Id is in incorrect format. Skipping this line.");
-                    } catch (InvalidLineException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
+                if (!reader.isInt(0)) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_CONCERT_ID);
+                    continue;
+                }
+                if (!isPrices(reader, 5) || !isPrices(reader, 6) || !isPrices(reader, 7)) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_PRICE);
+                    continue;
                 }
-                concerts.add(new Concert(line));
+                concerts.add(new Concert(reader.getString(0), reader.getString(1), reader.getString(2),
+                        reader.getString(3), reader.getString(4), readPrices(reader, 5), readPrices(reader, 6),
+                        readPrices(reader, 7)));
             }
-            br.close();
         } catch (FileNotFoundException e) {
             System.err.println(concertCsvPath + "(No such file or directory)");
         } catch (IOException e) {
             System.err.println(concertCsvPath + "(No such file or directory)");
         }
+        errors.printSummary();
         return concerts;
     }
 
     /**
-     * Loads venues from a txt file.
+     * Reads the left, middle and right prices of a zone such as
+     * "STANDING:99:149:99".
+     *
+     * @param reader The reader positioned on a concert line.
+     * @param field  The index of the price field.
+     * @return An array of left, middle and right prices in cents.
+     */
+    public long[] readPrices(CsvReader reader, int field) {
+        return new long[] { reader.getCentsPart(field, ':', 1), reader.getCentsPart(field, ':', 2),
+                reader.getCentsPart(field, ':', 3) };
+    }
+
+    /**
+     * Checks if a zone's price field has a left, middle and right price.
+     *
+     * @param reader The reader positioned on a concert line.
+     * @param field  The index of the price field.
+     * @return True if readPrices can read the field.
+     */
+    public boolean isPrices(CsvReader reader, int field) {
+        return reader.isCentsPart(field, ':', 1) && reader.isCentsPart(field, ':', 2)
+                && reader.isCentsPart(field, ':', 3);
+    }
+
+    /**
+     * Loads venues from a txt file. Venue files are only read the first time a
+     * concert's venue is needed, and each of them is parsed once and shared by
+     * every concert held there.
      *
      * @param concerts   A list of concerts.
+     * @param bookings   A list of bookings.
      * @param venuePaths A list of venue file paths.
      * @param tme        An instance of TicketManagementEngine.
-     * @return A map of concert IDs to venues.
+     * @param seatMap    The seat map file, or null to mark booked seats in
+     *                   memory.
+     * @return A catalog of the venues of each concert.
      */
-    public HashMap<String, Venue> loadVenues(ArrayList<Concert> concerts, ArrayList<String> venuePaths,
-            TicketManagementEngine tme) {
-        HashMap<String, Venue> venues = new HashMap<String, Venue>();
-
-        for (int i = 0; i < concerts.size(); i++) {
-            boolean found = false;
-            String venue = concerts.get(i).getVenue();
-            for (String venuePath : venuePaths) {
-                int index = venuePath.indexOf("_");
-                String venueOnPath = venuePath.substring(index + 1, venuePath.length() - ".txt".length());
-                if ((venue.equals(venueOnPath.toUpperCase()))) {
-                    venues.put(concerts.get(i).getConcertId(),
-                            tme.loadVenueHelper(venuePath, concerts.get(i).getConcertId()));
-                    found = true;
-                }
-            }
-            if (found == false) {
-                venues.put(concerts.get(i).getConcertId(),
-                        tme.loadVenueHelper(defaultPath, concerts.get(i).getConcertId()));
-            }
+    public VenueCatalog loadVenues(ArrayList<Concert> concerts, BookingRepository bookings,
+            ArrayList<String> venuePaths, TicketManagementEngine tme, SeatMapFile seatMap) {
+        // the venue name is the part of the file name after "_", e.g. venue_mcg.txt
+        HashMap<String, String> pathsByVenue = new HashMap<String, String>();
+        for (String venuePath : venuePaths) {
+            int index = venuePath.indexOf("_");
+            String venueOnPath = venuePath.substring(index + 1, venuePath.length() - ".txt".length());
+            pathsByVenue.put(venueOnPath.toUpperCase(), venuePath);
         }
-        return venues;
+        return new VenueCatalog(concerts, bookings, pathsByVenue, defaultPath, seatMap);
     }
 
     /**
-     * Helper method to load a venue to open and read a file.
+     * Loads bookings from the binary snapshot if it matches the CSV file, or
+     * else from the CSV file with its journal replayed on top of it.
      *
-     * @param venuePath The path to the venue file.
-     * @param id        The concert ID.
-     * @return The loaded venue.
+     * @param bookingPath The path to the booking file.
+     * @return A list of bookings.
      */
-    public Venue loadVenueHelper(String venuePath, String id) {
-        ArrayList<String> layout = new ArrayList<String>();
-        BufferedReader br = null;
-        int rowVip = 0;
-        int rowSeating = 0;
-        int rowStanding = 0;
-        int numCol = 0;
-        int leftCol = 0;
-        int rightCol = 0;
-        int midCol = 0;
-        boolean checked = false;
-        boolean isLeftColChecked = false;
-        boolean isMidColChecked = false;
-        boolean isRightColChecked = false;
-
-        try {
-            br = new BufferedReader(new FileReader(venuePath));
-            String line;
-            while ((line = br.readLine()) != null) {
-                layout.add(line);
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                if (!checked) {
-                    String[] parts = line.split(" ");
-                    leftCol = parts[1].length() / BRACKET_LENGTH; // equals 3 to reduce length of "[]"
-                    midCol = parts[2].length() / BRACKET_LENGTH;
-                    rightCol = parts[3].length() / BRACKET_LENGTH;
-                    checked = true;
-                }
+    public BookingRepository loadBookings(String bookingPath) {
+        return loadBookings(bookingPath, false);
+    }
 
-                if (line.charAt(0) == VIP) {
-                    rowVip++;
-                } else if (line.charAt(0) == SEATING) {
-                    rowSeating++;
-                } else if (line.charAt(0) == STANDING) {
-                    rowStanding++;
-                } else {
-                    try {
-                        throw new InvalidLineException("Invalid Zone Type. Skipping this line.");
-                    } catch (InvalidLineException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
-                }
-            }
-            br.close();
-        } catch (FileNotFoundException e) {
-            System.err.println(venuePath + "(No such file or directory)");
-        } catch (IOException e) {
-            System.err.println(venuePath + "(No such file or directory)");
+    /**
+     * Loads bookings from the binary snapshot if it matches the CSV file, or
+     * else from the CSV file with its journal replayed on top of it. Bookings
+     * in the snapshot are only created when their concert is searched.
+     *
+     * @param bookingPath The path to the booking file.
+     * @param parallel    True to parse the CSV file on all cores.
+     * @return A list of bookings.
+     */
+    public BookingRepository loadBookings(String bookingPath, boolean parallel) {
+        BookingSnapshot snapshot = BookingSnapshot.open(bookingPath, () -> loadBookingFiles(bookingPath, parallel));
+        if (snapshot != null) {
+            return new BookingRepository(snapshot);
         }
-        Venue venue = new Venue(id, rowVip, rowSeating, rowStanding, leftCol, midCol, rightCol, layout);
-        return venue;
-
+        return new BookingRepository(loadBookingFiles(bookingPath, parallel));
     }
 
     /**
-     * Loads bookings from a CSV file.
+     * Loads bookings from the CSV file with its journal replayed on top of it.
      *
      * @param bookingPath The path to the booking file.
+     * @param parallel    True to parse the CSV file on all cores.
      * @return A list of bookings.
      */
-    public ArrayList<Booking> loadBookings(String bookingPath) {
+    public ArrayList<Booking> loadBookingFiles(String bookingPath, boolean parallel) {
         ArrayList<Booking> bookings = new ArrayList<>();
-        BufferedReader br = null;
-        try {
-            br = new BufferedReader(new FileReader(bookingPath));
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",");
-                if (data.length < MINIMUM_BOOKING_LENGTH) {
-                    try {
-                        throw new InvalidLineException("Invalid booking Files. Skipping this line.");
-                    } catch (InvalidLineException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
-                }
-                if (!isNumeric(data[0])) {
-                    try {
-                        throw new InvalidFormatException("Booking Id is in incorrect format. Skipping this line.");
-                    } catch (InvalidFormatException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
-                }
+        if (parallel) {
+            LineErrors errors = new LineErrors(false);
+            try {
+                bookings = new ParallelLoader<Booking>(bookingPath, this::parseBooking).load(errors);
+            } catch (IOException e) {
+                System.err.println(bookingPath + "(No such file or directory)");
+            }
+            errors.print();
+        } else {
+            loadBookingHelper(bookingPath, bookings, null);
+        }
 
-                if (!isNumeric(data[4]) || Integer.parseInt(data[4]) == 0) {
-                    try {
-                        throw new InvalidFormatException("Incorrect Number of Tickets. Skipping this line.");
-                    } catch (InvalidFormatException e) {
-                        System.out.println(e.getMessage());
-                        continue;
-                    }
+        BookingJournal journal = new BookingJournal(bookingPath, BookingJournal.DEFAULT_COMPACTION_THRESHOLD);
+        if (journal.exists()) {
+            // a journal entry replaces the booking with the same key
+            HashMap<String, Integer> positions = new HashMap<String, Integer>();
+            for (int i = 0; i < bookings.size(); i++) {
+                positions.put(bookings.get(i).getKey(), i);
+            }
+            loadBookingHelper(journal.getJournalPath(), bookings, positions);
+        }
+        for (Booking b : bookings) {
+            b.markPersisted();
+        }
+        return bookings;
+    }
+
+    /**
+     * Helper method to read bookings from a booking file or journal.
+     *
+     * @param bookingPath The path to the file.
+     * @param bookings    A list to add the bookings to.
+     * @param positions   A map of booking keys to their index in the list, or
+     *                    null to append every booking.
+     */
+    public void loadBookingHelper(String bookingPath, ArrayList<Booking> bookings,
+            HashMap<String, Integer> positions) {
+        LineErrors errors = new LineErrors(true);
+        try (CsvReader reader = new CsvReader(bookingPath)) {
+            while (reader.nextLine()) {
+                Booking booking = parseBooking(reader, errors);
+                if (booking == null) {
+                    continue;
                 }
-                String bookingId = data[0];
-                String customerId = data[1];
-                String customerName = data[2];
-                String concertId = data[3];
-                int totalTickets = Integer.parseInt(data[4]);
-
-                Booking booking = new Booking(bookingId, customerId, customerName, concertId, totalTickets);
-
-                int index = 5;
-                for (int i = 0; i < totalTickets; i++) {
-                    String ticketId = data[index];
-                    String rowNumber = data[index + 1];
-                    String seatNumber = data[index + 2];
-                    String zoneType = data[index + 3];
-                    double price = Double.parseDouble(data[index + 4]);
-                    booking.addTicketDetail(ticketId, rowNumber, seatNumber, zoneType, price);
-                    index += 5;
+                Integer position = positions == null ? null : positions.get(booking.getKey());
+                if (position != null) {
+                    bookings.set(position, booking);
+                } else {
+                    if (positions != null) {
+                        positions.put(booking.getKey(), bookings.size());
+                    }
+                    bookings.add(booking);
                 }
-                bookings.add(booking);
             }
-            br.close();
         } catch (FileNotFoundException e) {
             System.err.println(bookingPath + "(No such file or directory)");
         } catch (IOException e) {
             System.err.println(bookingPath + "(No such file or directory)");
         }
+        errors.printSummary();
+    }
 
-        return bookings;
+    /**
+     * Parses a line of the booking file.
+     *
+     * @param reader The reader positioned on the line.
+     * @param errors The skipped lines.
+     * @return The booking, or null if the line is invalid.
+     */
+    public Booking parseBooking(CsvReader reader, LineErrors errors) {
+        if (reader.getFieldCount() < MINIMUM_BOOKING_LENGTH) {
+            errors.add(reader.getLineNumber(), LineError.INVALID_BOOKING_LINE);
+            return null;
+        }
+        if (!reader.isInt(0)) {
+            errors.add(reader.getLineNumber(), LineError.INVALID_BOOKING_ID);
+            return null;
+        }
+        if (!reader.isInt(4) || reader.getInt(4) <= 0 || reader.getFieldCount() < 5 + reader.getInt(4) * 5) {
+            errors.add(reader.getLineNumber(), LineError.INVALID_TICKET_COUNT);
+            return null;
+        }
+        for (int i = 0; i < reader.getInt(4); i++) {
+            if (!reader.isCents(9 + i * 5)) {
+                errors.add(reader.getLineNumber(), LineError.INVALID_PRICE);
+                return null;
+            }
+        }
+        String bookingId = reader.getString(0);
+        String customerId = reader.getString(1);
+        String customerName = reader.getString(2);
+        String concertId = reader.getString(3);
+        int totalTickets = reader.getInt(4);
+
+        Booking booking = new Booking(bookingId, customerId, customerName, concertId, totalTickets);
+
+        int index = 5;
+        for (int i = 0; i < totalTickets; i++) {
+            String ticketId = reader.getString(index);
+            String rowNumber = reader.getString(index + 1);
+            String seatNumber = reader.getString(index + 2);
+            String zoneType = readZoneType(reader, index + 3);
+            long priceCents = reader.getCents(index + 4);
+            booking.addTicketDetail(ticketId, rowNumber, seatNumber, zoneType, priceCents);
+            index += 5;
+        }
+        return booking;
+    }
+
+    /**
+     * Reads a zone type, reusing the constant for the known zones.
+     *
+     * @param reader The reader positioned on a booking line.
+     * @param field  The index of the zone field.
+     * @return The zone type.
+     */
+    public String readZoneType(CsvReader reader, int field) {
+        for (int i = 0; i < ZoneType.count(); i++) {
+            if (reader.fieldEquals(field, ZoneType.of(i).name())) {
+                return ZoneType.of(i).name();
+            }
+        }
+        return reader.getString(field);
     }
 
     /**
@@ -13,12 +13,18 @@ import java.util.ArrayList;
  * author Yoshikazu Fujisaka
  */
 public class Booking {
-    private String bookingId;
-    private String customerId;
-    private String customerName;
-    private String concertId;
+    private static final SymbolTable SYMBOLS = SymbolTable.SHARED;
+
+    // symbols of the IDs and name in the shared symbol table
+    private int bookingId;
+    private int customerId;
+    private int customerName;
+    private int concertId;
     private int totalTickets;
-    private ArrayList<TicketDetail> ticketDetails;
+    private TicketStore tickets;
+    private boolean persisted;
+    private TicketSource ticketSource;
+    private int sourceIndex;
 
     /**
      * Constructor to initialize a Booking object.
@@ -30,12 +36,31 @@ public class Booking {
      * @param totalTickets The total number of tickets booked.
      */
     public Booking(String bookingId, String customerId, String customerName, String concertId, int totalTickets) {
-        this.bookingId = bookingId;
-        this.customerId = customerId;
-        this.customerName = customerName;
-        this.concertId = concertId;
+        this.bookingId = SYMBOLS.intern(bookingId);
+        this.customerId = SYMBOLS.intern(customerId);
+        this.customerName = SYMBOLS.intern(customerName);
+        this.concertId = SYMBOLS.intern(concertId);
         this.totalTickets = totalTickets;
-        this.ticketDetails = new ArrayList<>();
+        this.tickets = new TicketStore(totalTickets);
+    }
+
+    /**
+     * Constructor to initialize a Booking object whose ticket details are read
+     * from storage the first time they are needed.
+     *
+     * @param bookingId    The ID of the booking.
+     * @param customerId   The ID of the customer.
+     * @param customerName The name of the customer.
+     * @param concertId    The ID of the concert.
+     * @param totalTickets The total number of tickets booked.
+     * @param ticketSource The storage that holds the ticket details.
+     * @param sourceIndex  The position of the booking in the storage.
+     */
+    public Booking(String bookingId, String customerId, String customerName, String concertId, int totalTickets,
+            TicketSource ticketSource, int sourceIndex) {
+        this(bookingId, customerId, customerName, concertId, totalTickets);
+        this.ticketSource = ticketSource;
+        this.sourceIndex = sourceIndex;
     }
 
     /**
@@ -48,8 +73,83 @@ public class Booking {
      * @param price      The price of the ticket.
      */
     public void addTicketDetail(String ticketId, String rowNumber, String seatNumber, String zoneType, double price) {
-        TicketDetail ticketDetail = new TicketDetail(ticketId, rowNumber, seatNumber, zoneType, price);
-        this.ticketDetails.add(ticketDetail);
+        this.tickets.add(ticketId, rowNumber, seatNumber, zoneType, price);
+        this.persisted = false;
+    }
+
+    /**
+     * Adds a ticket detail with its price in cents to the booking.
+     *
+     * @param ticketId   The ID of the ticket.
+     * @param rowNumber  The row number of the seat.
+     * @param seatNumber The seat number.
+     * @param zoneType   The type of zone
+     * @param priceCents The price of the ticket in cents.
+     */
+    public void addTicketDetail(String ticketId, String rowNumber, String seatNumber, String zoneType,
+            long priceCents) {
+        this.tickets.add(ticketId, rowNumber, seatNumber, zoneType, priceCents);
+        this.persisted = false;
+    }
+
+    /**
+     * Adds a ticket given as numbers to the booking.
+     *
+     * @param ticketId   The ID of the ticket.
+     * @param zone       The index of the zone in ZoneType.
+     * @param row        The row number of the seat.
+     * @param seat       The seat number.
+     * @param priceCents The price of the ticket in cents.
+     */
+    public void addTicket(int ticketId, int zone, int row, int seat, long priceCents) {
+        this.tickets.add(ticketId, zone, row, seat, priceCents);
+        this.persisted = false;
+    }
+
+    /**
+     * Checks if the booking is already stored in the booking file or journal.
+     *
+     * @return True if the booking has no unsaved changes.
+     */
+    public boolean isPersisted() {
+        return persisted;
+    }
+
+    /**
+     * Marks the booking as stored in the booking file or journal.
+     */
+    public void markPersisted() {
+        this.persisted = true;
+    }
+
+    /**
+     * Converts the booking to a line of the booking file.
+     *
+     * @return The booking as comma separated values.
+     */
+    public String toCsvLine() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getBookingId()).append(",").append(getCustomerId()).append(",").append(getCustomerName())
+                .append(",").append(getConcertId()).append(",").append(totalTickets);
+        TicketStore store = getTickets();
+        for (int i = 0; i < totalTickets; i++) {
+            TicketDetail td = store.getDetail(i);
+            sb.append(",").append(td.getTicketId());
+            sb.append(",").append(td.getRowNumber());
+            sb.append(",").append(td.getSeatNumber());
+            sb.append(",").append(td.getZoneType());
+            sb.append(",").append(Money.formatPlain(td.getPriceCents()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the key that identifies the booking in the booking file.
+     *
+     * @return The booking ID, customer ID and concert ID joined by commas.
+     */
+    public String getKey() {
+        return getBookingId() + "," + getCustomerId() + "," + getConcertId();
     }
 
     /**
@@ -58,18 +158,49 @@ public class Booking {
      * @return The concert ID.
      */
     public String getConcertId() {
+        return SYMBOLS.get(concertId);
+    }
+
+    /**
+     * Gets the symbol of the concert ID.
+     *
+     * @return The symbol of the concert ID in the shared symbol table.
+     */
+    public int getConcertSymbol() {
         return concertId;
     }
 
     /**
-     * Gets the list of ticket details.
+     * Gets the list of ticket details. The details are made from the ticket
+     * store each time, so changing the list does not change the booking.
      *
      * @return The list of ticket details.
      */
     public ArrayList<TicketDetail> getTicketDetails() {
+        TicketStore store = getTickets();
+        ArrayList<TicketDetail> ticketDetails = new ArrayList<TicketDetail>(store.size());
+        for (int i = 0; i < store.size(); i++) {
+            ticketDetails.add(store.getDetail(i));
+        }
         return ticketDetails;
     }
 
+    /**
+     * Gets the tickets of the booking without making a TicketDetail for each.
+     *
+     * @return The ticket store of the booking.
+     */
+    public synchronized TicketStore getTickets() {
+        if (ticketSource != null) {
+            TicketSource source = ticketSource;
+            boolean wasPersisted = persisted;
+            ticketSource = null;
+            source.loadTickets(this, sourceIndex);
+            persisted = wasPersisted;
+        }
+        return tickets;
+    }
+
     /**
      * Gets the total number of tickets booked.
      *
@@ -85,7 +216,7 @@ public class Booking {
      * @return The booking ID.
      */
     public String getBookingId() {
-        return bookingId;
+        return SYMBOLS.get(bookingId);
     }
 
     /**
@@ -94,6 +225,15 @@ public class Booking {
      * @return The customer ID.
      */
     public String getCustomerId() {
+        return SYMBOLS.get(customerId);
+    }
+
+    /**
+     * Gets the symbol of the customer ID.
+     *
+     * @return The symbol of the customer ID in the shared symbol table.
+     */
+    public int getCustomerSymbol() {
         return customerId;
     }
 
@@ -103,6 +243,6 @@ public class Booking {
      * @return The customer name.
      */
     public String getCustomerName() {
-        return customerName;
+        return SYMBOLS.get(customerName);
     }
 }
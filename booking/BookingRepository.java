@@ -0,0 +1,305 @@
+package booking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that holds every booking in the order they were loaded or made,
+ * together with indexes of the bookings of each concert and of each customer
+ * at each concert. The indexes are updated whenever a booking is added, so
+ * finding bookings takes time in proportion to the bookings found. The number
+ * of seats sold for each concert is counted as bookings are added as well,
+ * and so is the highest booking ID of each concert, from which new booking IDs
+ * are handed out. The indexes are keyed by the symbols of the IDs, so a lookup
+ * compares ints. A repository can be shared by several sessions at once.
+ *
+ * A repository can also start from a BookingSource, such as a snapshot of the
+ * booking file. The stored bookings of a concert are then only created the
+ * first time the concert is searched, and the totals of a concert are read
+ * from the source when first needed. Going through every booking creates the
+ * stored bookings that are still missing, and the source is not used after
+ * that.
+ */
+public class BookingRepository implements Iterable<Booking> {
+    private ArrayList<Booking> bookings = new ArrayList<Booking>();
+    private HashMap<Integer, ArrayList<Booking>> byConcert = new HashMap<Integer, ArrayList<Booking>>();
+    private HashMap<Long, ArrayList<Booking>> byCustomerConcert = new HashMap<Long, ArrayList<Booking>>();
+    private ConcurrentHashMap<Integer, AtomicInteger> seatsSold = new ConcurrentHashMap<Integer, AtomicInteger>();
+    private ConcurrentHashMap<Integer, AtomicInteger> lastIds = new ConcurrentHashMap<Integer, AtomicInteger>();
+    // while set, bookings only holds the bookings added since loading
+    private volatile BookingSource source;
+    private HashSet<String> loadedConcerts = new HashSet<String>();
+
+    /**
+     * Constructor to initialize an empty BookingRepository.
+     */
+    public BookingRepository() {
+    }
+
+    /**
+     * Constructor to initialize a BookingRepository with loaded bookings.
+     *
+     * @param loaded The loaded bookings, in file order.
+     */
+    public BookingRepository(List<Booking> loaded) {
+        bookings.ensureCapacity(loaded.size());
+        for (Booking b : loaded) {
+            bookings.add(b);
+            index(b);
+            count(b);
+        }
+    }
+
+    /**
+     * Constructor to initialize a BookingRepository over stored bookings that
+     * are created when they are needed.
+     *
+     * @param source The stored bookings.
+     */
+    public BookingRepository(BookingSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Adds a booking and indexes it.
+     *
+     * @param booking The booking to add.
+     */
+    public synchronized void add(Booking booking) {
+        bookings.add(booking);
+        index(booking);
+        count(booking);
+    }
+
+    /**
+     * Adds a booking to the indexes of its concert and customer.
+     *
+     * @param booking The booking to index.
+     */
+    private void index(Booking booking) {
+        byConcert.computeIfAbsent(booking.getConcertSymbol(), k -> new ArrayList<Booking>()).add(booking);
+        byCustomerConcert.computeIfAbsent(customerConcertKey(booking.getCustomerSymbol(), booking.getConcertSymbol()),
+                k -> new ArrayList<Booking>()).add(booking);
+    }
+
+    /**
+     * Adds a booking to the seats sold and highest booking ID of its concert.
+     *
+     * @param booking The booking to count.
+     */
+    private void count(Booking booking) {
+        getSeatsSoldCounter(booking.getConcertId()).addAndGet(booking.getTotalTickets());
+        try {
+            int bookingId = Integer.parseInt(booking.getBookingId());
+            getLastIdCounter(booking.getConcertId()).accumulateAndGet(bookingId, Math::max);
+        } catch (NumberFormatException e) {
+            // a booking ID that is not a number cannot clash with a new one
+        }
+    }
+
+    /**
+     * Gets the counter of the seats sold for a concert, starting it from the
+     * stored bookings the first time.
+     *
+     * @param concertId The ID of the concert.
+     * @return The counter.
+     */
+    private AtomicInteger getSeatsSoldCounter(String concertId) {
+        BookingSource stored = source;
+        return seatsSold.computeIfAbsent(SymbolTable.SHARED.intern(concertId),
+                k -> new AtomicInteger(stored == null ? 0 : stored.getSeatsSold(concertId)));
+    }
+
+    /**
+     * Gets the counter of the highest booking ID of a concert, starting it from
+     * the stored bookings the first time.
+     *
+     * @param concertId The ID of the concert.
+     * @return The counter.
+     */
+    private AtomicInteger getLastIdCounter(String concertId) {
+        BookingSource stored = source;
+        return lastIds.computeIfAbsent(SymbolTable.SHARED.intern(concertId),
+                k -> new AtomicInteger(stored == null ? 0 : stored.getLastBookingId(concertId)));
+    }
+
+    /**
+     * Creates the stored bookings of a concert the first time it is searched.
+     * They come before the bookings of the concert added since loading.
+     *
+     * @param concertId The ID of the concert.
+     */
+    private void loadConcert(String concertId) {
+        if (source == null || !loadedConcerts.add(concertId)) {
+            return;
+        }
+        List<Booking> stored = source.loadConcert(concertId);
+        if (stored.isEmpty()) {
+            return;
+        }
+        int concert = stored.get(0).getConcertSymbol();
+        ArrayList<Booking> concertBookings = new ArrayList<Booking>(stored);
+        ArrayList<Booking> added = byConcert.get(concert);
+        if (added != null) {
+            concertBookings.addAll(added);
+        }
+        byConcert.put(concert, concertBookings);
+        HashMap<Long, ArrayList<Booking>> byCustomer = new HashMap<Long, ArrayList<Booking>>();
+        for (Booking b : stored) {
+            byCustomer.computeIfAbsent(customerConcertKey(b.getCustomerSymbol(), concert),
+                    k -> new ArrayList<Booking>()).add(b);
+        }
+        for (HashMap.Entry<Long, ArrayList<Booking>> entry : byCustomer.entrySet()) {
+            added = byCustomerConcert.get(entry.getKey());
+            if (added != null) {
+                entry.getValue().addAll(added);
+            }
+            byCustomerConcert.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Creates every stored booking that is still missing and indexes the
+     * bookings again in the order they were loaded or made.
+     */
+    private void loadAll() {
+        BookingSource stored = source;
+        if (stored == null) {
+            return;
+        }
+        ArrayList<Booking> all = new ArrayList<Booking>(stored.loadAll());
+        for (Booking b : all) {
+            // the totals of each concert must be read before the source is dropped
+            getSeatsSoldCounter(b.getConcertId());
+            getLastIdCounter(b.getConcertId());
+        }
+        all.addAll(bookings);
+        source = null;
+        bookings = all;
+        byConcert.clear();
+        byCustomerConcert.clear();
+        for (Booking b : all) {
+            index(b);
+        }
+    }
+
+    /**
+     * Hands out a new booking ID for a concert. IDs follow the highest booking
+     * ID of the concert and are never handed out twice, even when several
+     * sessions book at once.
+     *
+     * @param concertId The ID of the concert.
+     * @return The new booking ID.
+     */
+    public int nextBookingId(String concertId) {
+        return getLastIdCounter(concertId).incrementAndGet();
+    }
+
+    /**
+     * Gets the number of seats sold for a concert.
+     *
+     * @param concertId The ID of the concert.
+     * @return The total number of tickets in the bookings for the concert.
+     */
+    public int getSeatsSold(String concertId) {
+        if (source != null) {
+            return getSeatsSoldCounter(concertId).get();
+        }
+        AtomicInteger sold = seatsSold.get(SymbolTable.SHARED.find(concertId));
+        return sold == null ? 0 : sold.get();
+    }
+
+    /**
+     * Finds the bookings for a concert.
+     *
+     * @param concertId The ID of the concert.
+     * @return A list of the bookings for the concert, in the order they were
+     *         added.
+     */
+    public synchronized ArrayList<Booking> findByConcert(String concertId) {
+        loadConcert(concertId);
+        ArrayList<Booking> found = byConcert.get(SymbolTable.SHARED.find(concertId));
+        return found == null ? new ArrayList<Booking>() : new ArrayList<Booking>(found);
+    }
+
+    /**
+     * Finds the bookings of a customer for a concert.
+     *
+     * @param customerId The ID of the customer.
+     * @param concertId  The ID of the concert.
+     * @return A list of the customer's bookings for the concert, in the order
+     *         they were added.
+     */
+    public synchronized ArrayList<Booking> findByCustomer(String customerId, String concertId) {
+        loadConcert(concertId);
+        ArrayList<Booking> found = byCustomerConcert.get(
+                customerConcertKey(SymbolTable.SHARED.find(customerId), SymbolTable.SHARED.find(concertId)));
+        return found == null ? new ArrayList<Booking>() : new ArrayList<Booking>(found);
+    }
+
+    /**
+     * Gets the number of bookings.
+     *
+     * @return The number of bookings.
+     */
+    public synchronized int size() {
+        loadAll();
+        return bookings.size();
+    }
+
+    /**
+     * Gets a booking by its position.
+     *
+     * @param index The position of the booking.
+     * @return The booking.
+     */
+    public synchronized Booking get(int index) {
+        loadAll();
+        return bookings.get(index);
+    }
+
+    /**
+     * Gets an iterator over every booking in the order they were added.
+     * Bookings added while iterating are not seen.
+     *
+     * @return A read-only iterator over the bookings.
+     */
+    @Override
+    public synchronized Iterator<Booking> iterator() {
+        loadAll();
+        return Collections.unmodifiableList(new ArrayList<Booking>(bookings)).iterator();
+    }
+
+    /**
+     * Finds the bookings that have changes not yet saved. Stored bookings that
+     * have not been created yet are saved already, so they are not created.
+     *
+     * @return A list of the unsaved bookings, in the order they were added.
+     */
+    public synchronized ArrayList<Booking> findUnsaved() {
+        ArrayList<Booking> unsaved = new ArrayList<Booking>();
+        for (Booking b : bookings) {
+            if (!b.isPersisted()) {
+                unsaved.add(b);
+            }
+        }
+        return unsaved;
+    }
+
+    /**
+     * Gets the key of a customer at a concert.
+     *
+     * @param customerSymbol The symbol of the customer ID.
+     * @param concertSymbol  The symbol of the concert ID.
+     * @return The key of the customer index.
+     */
+    private static long customerConcertKey(int customerSymbol, int concertSymbol) {
+        return ((long) customerSymbol << 32) | (concertSymbol & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,43 @@
+package booking;
+
+import java.util.List;
+
+/**
+ * Interface for storage that holds saved bookings and creates them only when
+ * they are asked for, so that a repository can start without reading every
+ * booking. The totals of each concert can be read without creating any
+ * booking.
+ */
+public interface BookingSource {
+
+    /**
+     * Gets the number of seats sold for a concert in the stored bookings.
+     *
+     * @param concertId The ID of the concert.
+     * @return The total number of tickets of the concert.
+     */
+    int getSeatsSold(String concertId);
+
+    /**
+     * Gets the highest booking ID of a concert in the stored bookings.
+     *
+     * @param concertId The ID of the concert.
+     * @return The highest booking ID, or 0 if the concert has no bookings.
+     */
+    int getLastBookingId(String concertId);
+
+    /**
+     * Creates the stored bookings of a concert.
+     *
+     * @param concertId The ID of the concert.
+     * @return The bookings of the concert, in the order they were stored.
+     */
+    List<Booking> loadConcert(String concertId);
+
+    /**
+     * Creates every stored booking.
+     *
+     * @return The bookings, in the order they were stored.
+     */
+    List<Booking> loadAll();
+}
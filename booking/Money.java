@@ -0,0 +1,107 @@
+package booking;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helper methods for amounts of money held as a long number of cents. Prices
+ * are kept in cents from the moment they are read until they are written, so
+ * adding them up is exact and writing them back never loses a cent.
+ */
+public final class Money {
+    private static final int CENTS_PER_DOLLAR = 100;
+
+    /**
+     * Constructor that prevents creating a Money object.
+     */
+    private Money() {
+    }
+
+    /**
+     * Converts an amount to cents, rounding half a cent away from zero.
+     *
+     * @param amount The amount in dollars.
+     * @return The amount in cents.
+     */
+    public static long toCents(double amount) {
+        long cents = Math.round(amount * CENTS_PER_DOLLAR);
+        if (cents / (double) CENTS_PER_DOLLAR == amount) {
+            return cents;
+        }
+        // amounts such as 12.345 are rounded by their decimal digits
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Parses an amount such as 99, 149.5 or 12.345, rounding half a cent away
+     * from zero.
+     *
+     * @param s The amount in dollars.
+     * @return The amount in cents.
+     * @throws NumberFormatException If the text is not a number.
+     */
+    public static long parse(String s) {
+        try {
+            return new BigDecimal(s.trim()).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("For input string: \"" + s + "\"");
+        }
+    }
+
+    /**
+     * Converts cents to dollars.
+     *
+     * @param cents The amount in cents.
+     * @return The amount in dollars.
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Formats an amount with at least one decimal, such as 99.0 or 149.55, the
+     * way the concert file and the screens show prices.
+     *
+     * @param cents The amount in cents.
+     * @return The formatted amount.
+     */
+    public static String format(long cents) {
+        StringBuilder sb = formatDollars(cents);
+        long fraction = Math.abs(cents % CENTS_PER_DOLLAR);
+        sb.append('.');
+        if (fraction % 10 == 0) {
+            sb.append(fraction / 10);
+        } else {
+            sb.append(fraction / 10).append(fraction % 10);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats an amount without decimals when it is a whole number of dollars,
+     * such as 359 or 12.35, the way the booking file stores prices.
+     *
+     * @param cents The amount in cents.
+     * @return The formatted amount.
+     */
+    public static String formatPlain(long cents) {
+        if (cents % CENTS_PER_DOLLAR == 0) {
+            return formatDollars(cents).toString();
+        }
+        return format(cents);
+    }
+
+    /**
+     * Formats the sign and the whole dollars of an amount.
+     *
+     * @param cents The amount in cents.
+     * @return A builder holding the sign and whole dollars.
+     */
+    private static StringBuilder formatDollars(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        return sb.append(Math.abs(cents / CENTS_PER_DOLLAR));
+    }
+}
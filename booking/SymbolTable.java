@@ -0,0 +1,66 @@
+package booking;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table that gives each distinct string, such as a customer ID or name, a
+ * small int symbol. Bookings keep symbols instead of their own copies of the
+ * strings, so every booking of a customer shares one String, and comparing IDs
+ * is comparing ints. Symbols are never removed, and the table can be used from
+ * several threads.
+ */
+public class SymbolTable {
+    public static final SymbolTable SHARED = new SymbolTable();
+
+    private ConcurrentHashMap<String, Integer> symbols = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] strings = new String[64];
+    private int size;
+
+    /**
+     * Gets the symbol of a string, adding the string if it is new.
+     *
+     * @param s The string.
+     * @return The symbol of the string.
+     */
+    public int intern(String s) {
+        Integer symbol = symbols.get(s);
+        if (symbol != null) {
+            return symbol;
+        }
+        synchronized (this) {
+            symbol = symbols.get(s);
+            if (symbol != null) {
+                return symbol;
+            }
+            if (size == strings.length) {
+                strings = Arrays.copyOf(strings, size * 2);
+            }
+            // the string is stored before the symbol can be found through the map
+            strings[size] = s;
+            symbols.put(s, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Gets the symbol of a string without adding it.
+     *
+     * @param s The string.
+     * @return The symbol of the string, or -1 if it has no symbol.
+     */
+    public int find(String s) {
+        Integer symbol = symbols.get(s);
+        return symbol == null ? -1 : symbol;
+    }
+
+    /**
+     * Gets the string of a symbol.
+     *
+     * @param symbol The symbol.
+     * @return The string.
+     */
+    public String get(int symbol) {
+        return strings[symbol];
+    }
+}
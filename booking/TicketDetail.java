@@ -10,7 +10,7 @@ public class TicketDetail {
     private String rowNumber;
     private String seatNumber;
     private String zoneType;
-    private double price;
+    private long priceCents;
 
     /**
      * Constructor to initialize a TicketDetail object.
@@ -22,11 +22,24 @@ public class TicketDetail {
      * @param price      The price of the ticket.
      */
     public TicketDetail(String ticketId, String rowNumber, String seatNumber, String zoneType, double price) {
+        this(ticketId, rowNumber, seatNumber, zoneType, Money.toCents(price));
+    }
+
+    /**
+     * Constructor to initialize a TicketDetail object with a price in cents.
+     *
+     * @param ticketId   The ID of the ticket.
+     * @param rowNumber  The row number of the seat.
+     * @param seatNumber The seat number.
+     * @param zoneType   The type of zone (e.g., VIP, SEATING, STANDING).
+     * @param priceCents The price of the ticket in cents.
+     */
+    public TicketDetail(String ticketId, String rowNumber, String seatNumber, String zoneType, long priceCents) {
         this.ticketId = ticketId;
         this.rowNumber = rowNumber;
         this.seatNumber = seatNumber;
         this.zoneType = zoneType;
-        this.price = price;
+        this.priceCents = priceCents;
     }
 
     /**
@@ -71,6 +84,15 @@ public class TicketDetail {
      * @return The price of the ticket.
      */
     public double getPrice() {
-        return price;
+        return Money.toDouble(priceCents);
+    }
+
+    /**
+     * Gets the price of the ticket in cents.
+     *
+     * @return The price of the ticket in cents.
+     */
+    public long getPriceCents() {
+        return priceCents;
     }
 }
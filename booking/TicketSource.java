@@ -0,0 +1,16 @@
+package booking;
+
+/**
+ * Interface for storage that can supply the ticket details of a booking on
+ * demand, so that bookings can be created before their tickets are read.
+ */
+public interface TicketSource {
+
+    /**
+     * Adds the ticket details of a booking.
+     *
+     * @param booking The booking to add the ticket details to.
+     * @param index   The position of the booking in the storage.
+     */
+    void loadTickets(Booking booking, int index);
+}
@@ -0,0 +1,276 @@
+package booking;
+
+import java.util.Arrays;
+
+/**
+ * Class that stores the tickets of a booking in primitive arrays. The zone,
+ * row and seat of a ticket are packed into one int and the price is kept in
+ * cents, so a ticket takes about 12 bytes instead of a TicketDetail and four
+ * Strings. A ticket whose values cannot be packed, such as a row that is not a
+ * number, is kept as a TicketDetail.
+ */
+public class TicketStore {
+    private static final int ROW_BITS = 10;
+    private static final int SEAT_BITS = 20;
+    private static final int MAX_ROW = (1 << ROW_BITS) - 1;
+    private static final int MAX_SEAT = (1 << SEAT_BITS) - 1;
+    private static final int IRREGULAR = -1; // zone bits 3, which is not a zone
+
+    private int size;
+    private int[] seats;
+    private long[] cents;
+    private int[] ticketIds; // null while every ticket ID is its position plus one
+    private TicketDetail[] irregular; // null until a ticket cannot be packed
+
+    /**
+     * Constructor to initialize a TicketStore object.
+     *
+     * @param capacity The expected number of tickets.
+     */
+    public TicketStore(int capacity) {
+        seats = new int[Math.max(capacity, 1)];
+        cents = new long[seats.length];
+    }
+
+    /**
+     * Adds a ticket given as text.
+     *
+     * @param ticketId   The ID of the ticket.
+     * @param rowNumber  The row number of the seat.
+     * @param seatNumber The seat number.
+     * @param zoneType   The type of zone.
+     * @param price      The price of the ticket.
+     */
+    public void add(String ticketId, String rowNumber, String seatNumber, String zoneType, double price) {
+        add(ticketId, rowNumber, seatNumber, zoneType, Money.toCents(price));
+    }
+
+    /**
+     * Adds a ticket given as text with its price in cents.
+     *
+     * @param ticketId   The ID of the ticket.
+     * @param rowNumber  The row number of the seat.
+     * @param seatNumber The seat number.
+     * @param zoneType   The type of zone.
+     * @param priceCents The price of the ticket in cents.
+     */
+    public void add(String ticketId, String rowNumber, String seatNumber, String zoneType, long priceCents) {
+        int id = parseNumber(ticketId);
+        int row = parseNumber(rowNumber);
+        int seat = parseNumber(seatNumber);
+        ZoneType zone = ZoneType.fromName(zoneType);
+        if (id < 0 || row < 0 || row > MAX_ROW || seat < 0 || seat > MAX_SEAT || zone == null) {
+            int index = append(IRREGULAR, priceCents);
+            if (irregular == null) {
+                irregular = new TicketDetail[seats.length];
+            }
+            irregular[index] = new TicketDetail(ticketId, rowNumber, seatNumber, zoneType, priceCents);
+            return;
+        }
+        setTicketId(append(pack(zone.ordinal(), row, seat), priceCents), id);
+    }
+
+    /**
+     * Adds a ticket given as numbers with its price in cents.
+     *
+     * @param ticketId   The ID of the ticket.
+     * @param zone       The index of the zone in ZoneType.
+     * @param row        The row number of the seat.
+     * @param seat       The seat number.
+     * @param priceCents The price of the ticket in cents.
+     */
+    public void add(int ticketId, int zone, int row, int seat, long priceCents) {
+        if (ticketId < 0 || row < 0 || row > MAX_ROW || seat < 0 || seat > MAX_SEAT || ZoneType.of(zone) == null) {
+            add(Integer.toString(ticketId), Integer.toString(row), Integer.toString(seat),
+                    ZoneType.of(zone) == null ? "" : ZoneType.of(zone).name(), priceCents);
+            return;
+        }
+        setTicketId(append(pack(zone, row, seat), priceCents), ticketId);
+    }
+
+    /**
+     * Gets the number of tickets.
+     *
+     * @return The number of tickets.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the ID of a ticket.
+     *
+     * @param i The position of the ticket.
+     * @return The ID of the ticket.
+     */
+    public String getTicketId(int i) {
+        if (seats[i] == IRREGULAR) {
+            return irregular[i].getTicketId();
+        }
+        return Integer.toString(ticketIds == null ? i + 1 : ticketIds[i]);
+    }
+
+    /**
+     * Gets the zone type of a ticket.
+     *
+     * @param i The position of the ticket.
+     * @return The type of zone (e.g., VIP, SEATING, STANDING).
+     */
+    public String getZoneType(int i) {
+        if (seats[i] == IRREGULAR) {
+            return irregular[i].getZoneType();
+        }
+        return ZoneType.of(seats[i] >>> (ROW_BITS + SEAT_BITS)).name();
+    }
+
+    /**
+     * Gets the zone of a ticket.
+     *
+     * @param i The position of the ticket.
+     * @return The zone, or null if the zone type is not a zone.
+     */
+    public ZoneType getZone(int i) {
+        if (seats[i] == IRREGULAR) {
+            return ZoneType.fromName(irregular[i].getZoneType());
+        }
+        return ZoneType.of(seats[i] >>> (ROW_BITS + SEAT_BITS));
+    }
+
+    /**
+     * Gets the row number of a ticket.
+     *
+     * @param i The position of the ticket.
+     * @return The row number, or -1 if it is not a number.
+     */
+    public int getRow(int i) {
+        if (seats[i] == IRREGULAR) {
+            return parseNumber(irregular[i].getRowNumber());
+        }
+        return (seats[i] >>> SEAT_BITS) & MAX_ROW;
+    }
+
+    /**
+     * Gets the seat number of a ticket.
+     *
+     * @param i The position of the ticket.
+     * @return The seat number, or -1 if it is not a number.
+     */
+    public int getSeat(int i) {
+        if (seats[i] == IRREGULAR) {
+            return parseNumber(irregular[i].getSeatNumber());
+        }
+        return seats[i] & MAX_SEAT;
+    }
+
+    /**
+     * Gets the price of a ticket.
+     *
+     * @param i The position of the ticket.
+     * @return The price of the ticket.
+     */
+    public double getPrice(int i) {
+        return Money.toDouble(cents[i]);
+    }
+
+    /**
+     * Gets the price of a ticket in cents.
+     *
+     * @param i The position of the ticket.
+     * @return The price of the ticket in cents.
+     */
+    public long getCents(int i) {
+        return cents[i];
+    }
+
+    /**
+     * Gets a ticket as a TicketDetail.
+     *
+     * @param i The position of the ticket.
+     * @return A new TicketDetail with the values of the ticket.
+     */
+    public TicketDetail getDetail(int i) {
+        if (seats[i] == IRREGULAR) {
+            return irregular[i];
+        }
+        return new TicketDetail(getTicketId(i), Integer.toString(getRow(i)), Integer.toString(getSeat(i)),
+                getZoneType(i), cents[i]);
+    }
+
+    /**
+     * Appends a ticket to the arrays.
+     *
+     * @param seat       The packed zone, row and seat.
+     * @param priceCents The price in cents.
+     * @return The position of the ticket.
+     */
+    private int append(int seat, long priceCents) {
+        if (size == seats.length) {
+            int capacity = size * 2;
+            seats = Arrays.copyOf(seats, capacity);
+            cents = Arrays.copyOf(cents, capacity);
+            if (ticketIds != null) {
+                ticketIds = Arrays.copyOf(ticketIds, capacity);
+            }
+            if (irregular != null) {
+                irregular = Arrays.copyOf(irregular, capacity);
+            }
+        }
+        seats[size] = seat;
+        cents[size] = priceCents;
+        return size++;
+    }
+
+    /**
+     * Records the ID of a ticket, keeping no array while every ID is its
+     * position plus one.
+     *
+     * @param i  The position of the ticket.
+     * @param id The ID of the ticket.
+     */
+    private void setTicketId(int i, int id) {
+        if (ticketIds == null) {
+            if (id == i + 1) {
+                return;
+            }
+            ticketIds = new int[seats.length];
+            for (int j = 0; j < i; j++) {
+                ticketIds[j] = j + 1;
+            }
+        }
+        ticketIds[i] = id;
+    }
+
+    /**
+     * Packs a zone, row and seat into an int.
+     *
+     * @param zone The index of the zone.
+     * @param row  The row number.
+     * @param seat The seat number.
+     * @return The packed value.
+     */
+    private static int pack(int zone, int row, int seat) {
+        return (zone << (ROW_BITS + SEAT_BITS)) | (row << SEAT_BITS) | seat;
+    }
+
+    /**
+     * Parses a number written without sign or leading zeros, so that it is
+     * written back exactly the same.
+     *
+     * @param s The text of the number.
+     * @return The number, or -1 if it is not written that way.
+     */
+    private static int parseNumber(String s) {
+        if (s == null || s.isEmpty() || s.length() > 9 || (s.length() > 1 && s.charAt(0) == '0')) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+}
@@ -0,0 +1,82 @@
+package booking;
+
+/**
+ * Enum of the zones of a venue, with the letter that starts the rows of each
+ * zone in a venue file.
+ */
+public enum ZoneType {
+    VIP('V'),
+    SEATING('S'),
+    STANDING('T');
+
+    private static final ZoneType[] ZONES = values();
+
+    private final char letter;
+
+    /**
+     * Constructor to initialize a ZoneType.
+     *
+     * @param letter The letter of the zone in a venue file.
+     */
+    ZoneType(char letter) {
+        this.letter = letter;
+    }
+
+    /**
+     * Gets the letter of the zone in a venue file.
+     *
+     * @return The letter of the zone.
+     */
+    public char getLetter() {
+        return letter;
+    }
+
+    /**
+     * Gets a zone by its index.
+     *
+     * @param index The index of the zone.
+     * @return The zone, or null if there is no zone with that index.
+     */
+    public static ZoneType of(int index) {
+        return index >= 0 && index < ZONES.length ? ZONES[index] : null;
+    }
+
+    /**
+     * Gets a zone by its name, such as VIP.
+     *
+     * @param name The name of the zone.
+     * @return The zone, or null if the name is not a zone.
+     */
+    public static ZoneType fromName(String name) {
+        for (ZoneType zone : ZONES) {
+            if (zone.name().equals(name)) {
+                return zone;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets a zone by its letter in a venue file, such as V.
+     *
+     * @param letter The letter of the zone.
+     * @return The zone, or null if the letter is not a zone.
+     */
+    public static ZoneType fromLetter(char letter) {
+        for (ZoneType zone : ZONES) {
+            if (zone.letter == letter) {
+                return zone;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of zones.
+     *
+     * @return The number of zones.
+     */
+    public static int count() {
+        return ZONES.length;
+    }
+}
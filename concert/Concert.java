@@ -1,5 +1,8 @@
 package concert;
 
+import booking.Money;
+import booking.ZoneType;
+
 /**
  * Class that stores concert details including the ID, date, timing, artist,
  * venue,
@@ -14,38 +17,29 @@ public class Concert {
     private String artist;
     private String venue;
 
-    private double[] standingPrice = new double[3];
-    private double[] seatingPrice = new double[3];
-    private double[] vipPrice = new double[3];
-
-    /**
-     * Constructor that initializes a concert object with details.
-     *
-     * @param info A string containing concert details, separated by commas.
-     */
-    public Concert(String info) {
-        String[] details = info.split(",");
-        this.concertId = details[0];
-        this.date = details[1];
-        this.timing = details[2];
-        this.artist = details[3];
-        this.venue = details[4];
-        this.standingPrice = convertToDoubleArray(details[5].split(":"));
-        this.seatingPrice = convertToDoubleArray(details[6].split(":"));
-        this.vipPrice = convertToDoubleArray(details[7].split(":"));
-    }
+    // replaced as a whole when a price changes, so readers never need a lock
+    private volatile PriceSnapshot prices;
 
     /**
-     * Converts an array of strings to an array of doubles.
+     * Constructor that initializes a concert object with parsed details.
      *
-     * @param strings An array of strings representing prices.
-     * @return An array of doubles with parsed prices.
+     * @param concertId     The concert ID.
+     * @param date          The concert date.
+     * @param timing        The concert timing.
+     * @param artist        The artist name.
+     * @param venue         The venue name.
+     * @param standingPrice The left, middle and right standing prices in cents.
+     * @param seatingPrice  The left, middle and right seating prices in cents.
+     * @param vipPrice      The left, middle and right VIP prices in cents.
      */
-    public static double[] convertToDoubleArray(String[] strings) {
-        double leftPrice = Double.parseDouble(strings[1]);
-        double middlePrice = Double.parseDouble(strings[2]);
-        double rightPrice = Double.parseDouble(strings[3]);
-        return new double[] { leftPrice, middlePrice, rightPrice };
+    public Concert(String concertId, String date, String timing, String artist, String venue,
+            long[] standingPrice, long[] seatingPrice, long[] vipPrice) {
+        this.concertId = concertId;
+        this.date = date;
+        this.timing = timing;
+        this.artist = artist;
+        this.venue = venue;
+        this.prices = new PriceSnapshot(standingPrice, seatingPrice, vipPrice);
     }
 
     /**
@@ -100,7 +94,7 @@ public class Concert {
      *         seats.
      */
     public double[] getSeatingPrice() {
-        return seatingPrice;
+        return toDollars(prices.getPrices(ZoneType.SEATING));
     }
 
     /**
@@ -110,7 +104,7 @@ public class Concert {
      *         seats.
      */
     public double[] getStandingPrice() {
-        return standingPrice;
+        return toDollars(prices.getPrices(ZoneType.STANDING));
     }
 
     /**
@@ -119,46 +113,130 @@ public class Concert {
      * @return An array containing the VIP prices for left, middle, and right seats.
      */
     public double[] getVipPrice() {
-        return vipPrice;
+        return toDollars(prices.getPrices(ZoneType.VIP));
+    }
+
+    /**
+     * Gets the prices of a zone in cents.
+     *
+     * @param zone The zone.
+     * @return An array containing the prices in cents for left, middle, and
+     *         right seats.
+     */
+    public long[] getPriceCents(ZoneType zone) {
+        return prices.getPrices(zone);
+    }
+
+    /**
+     * Gets the current prices. The snapshot does not change, so prices read
+     * from it belong together even if the admin changes them meanwhile.
+     *
+     * @return The current price snapshot.
+     */
+    public PriceSnapshot getPrices() {
+        return prices;
+    }
+
+    /**
+     * Gets the current price of a seat in cents.
+     *
+     * @param template The layout of the concert's venue.
+     * @param zone     The zone of the seat.
+     * @param seat     The seat number.
+     * @return The price of the seat in cents.
+     */
+    public long getSeatPrice(VenueTemplate template, ZoneType zone, int seat) {
+        return getSeatPrice(template, prices, zone, seat);
+    }
+
+    /**
+     * Gets the price of a seat in cents from the seat price table of a price
+     * snapshot.
+     *
+     * @param template The layout of the concert's venue.
+     * @param snapshot The prices to use.
+     * @param zone     The zone of the seat.
+     * @param seat     The seat number.
+     * @return The price of the seat in cents.
+     */
+    public long getSeatPrice(VenueTemplate template, PriceSnapshot snapshot, ZoneType zone, int seat) {
+        return snapshot.getSeatPrices(template).getPrice(zone, seat);
+    }
+
+    /**
+     * Converts prices in cents to dollars.
+     *
+     * @param cents The prices in cents.
+     * @return The prices in dollars.
+     */
+    private static double[] toDollars(long[] cents) {
+        return new double[] { Money.toDouble(cents[0]), Money.toDouble(cents[1]), Money.toDouble(cents[2]) };
     }
 
     /**
      * Sets the seating prices.
      *
-     * @param leftPrice  The price for left seats.
-     * @param midPrice   The price for middle seats.
-     * @param rightPrice The price for right seats.
+     * @param leftPrice  The price for left seats in cents.
+     * @param midPrice   The price for middle seats in cents.
+     * @param rightPrice The price for right seats in cents.
      */
-    public void SetSeatingPrice(double leftPrice, double midPrice, double rightPrice) {
-        seatingPrice[0] = leftPrice;
-        seatingPrice[1] = midPrice;
-        seatingPrice[2] = rightPrice;
+    public void SetSeatingPrice(long leftPrice, long midPrice, long rightPrice) {
+        setPrices(ZoneType.SEATING, leftPrice, midPrice, rightPrice);
     }
 
     /**
      * Sets the standing prices.
      *
-     * @param leftPrice  The price for left standing area.
-     * @param midPrice   The price for middle standing area.
-     * @param rightPrice The price for right standing area.
+     * @param leftPrice  The price for left standing area in cents.
+     * @param midPrice   The price for middle standing area in cents.
+     * @param rightPrice The price for right standing area in cents.
      */
-    public void SetStandingPrice(double leftPrice, double midPrice, double rightPrice) {
-        standingPrice[0] = leftPrice;
-        standingPrice[1] = midPrice;
-        standingPrice[2] = rightPrice;
+    public void SetStandingPrice(long leftPrice, long midPrice, long rightPrice) {
+        setPrices(ZoneType.STANDING, leftPrice, midPrice, rightPrice);
     }
 
     /**
      * Sets the VIP prices.
      *
-     * @param leftPrice  The price for left VIP seats.
-     * @param midPrice   The price for middle VIP seats.
-     * @param rightPrice The price for right VIP seats.
+     * @param leftPrice  The price for left VIP seats in cents.
+     * @param midPrice   The price for middle VIP seats in cents.
+     * @param rightPrice The price for right VIP seats in cents.
+     */
+    public void SetVipPrice(long leftPrice, long midPrice, long rightPrice) {
+        setPrices(ZoneType.VIP, leftPrice, midPrice, rightPrice);
+    }
+
+    /**
+     * Replaces the prices of a zone with a new snapshot. Changes are made one
+     * at a time, so none of them is lost.
+     *
+     * @param zone       The zone.
+     * @param leftPrice  The price for left seats in cents.
+     * @param midPrice   The price for middle seats in cents.
+     * @param rightPrice The price for right seats in cents.
+     */
+    private synchronized void setPrices(ZoneType zone, long leftPrice, long midPrice, long rightPrice) {
+        prices = prices.withPrices(zone, leftPrice, midPrice, rightPrice);
+    }
+
+    /**
+     * Converts the concert to a line of the concert file.
+     *
+     * @return The concert as a line of comma separated values.
      */
-    public void SetVipPrice(double leftPrice, double midPrice, double rightPrice) {
-        vipPrice[0] = leftPrice;
-        vipPrice[1] = midPrice;
-        vipPrice[2] = rightPrice;
+    public String toCsvLine() {
+        PriceSnapshot snapshot = prices;
+        long[] standingPrice = snapshot.getPrices(ZoneType.STANDING);
+        long[] seatingPrice = snapshot.getPrices(ZoneType.SEATING);
+        long[] vipPrice = snapshot.getPrices(ZoneType.VIP);
+        String standing = "STANDING" + ":" + Money.format(standingPrice[0]) + ":" + Money.format(standingPrice[1])
+                + ":" + Money.format(standingPrice[2]);
+        String seating = "SEATING" + ":" + Money.format(seatingPrice[0]) + ":" + Money.format(seatingPrice[1])
+                + ":" + Money.format(seatingPrice[2]);
+        String vip = "VIP" + ":" + Money.format(vipPrice[0]) + ":" + Money.format(vipPrice[1]) + ":"
+                + Money.format(vipPrice[2]);
+        return concertId + "," + date + "," + timing + "," + artist + "," + venue + "," + standing + ","
+                + seating + "," + vip;
     }
 
 }
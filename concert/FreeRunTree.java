@@ -0,0 +1,212 @@
+package concert;
+
+/**
+ * Class to summarise the free seats of one row as a segment tree. Each node
+ * keeps the free run at the start of its range, the free run at the end and
+ * the longest free run inside it, so a block of adjacent free seats can be
+ * found without looking at every seat, and booking a seat only changes the
+ * nodes above it.
+ */
+public class FreeRunTree {
+    private final int seatCount;
+    private final int[] prefix;
+    private final int[] suffix;
+    private final int[] longest;
+
+    /**
+     * Constructor to build a FreeRunTree object for a row.
+     *
+     * @param seatCount The number of seats in the row, numbered from 1.
+     * @param booked    The seats that are booked, indexed by seat number.
+     */
+    public FreeRunTree(int seatCount, boolean[] booked) {
+        this.seatCount = seatCount;
+        int nodes = Math.max(4 * seatCount, 1);
+        prefix = new int[nodes];
+        suffix = new int[nodes];
+        longest = new int[nodes];
+        if (seatCount > 0) {
+            build(1, 1, seatCount, booked);
+        }
+    }
+
+    /**
+     * Gets the longest run of free seats in the row.
+     *
+     * @return The number of seats in the longest free run.
+     */
+    public int getLongestRun() {
+        return seatCount > 0 ? longest[1] : 0;
+    }
+
+    /**
+     * Marks a seat as booked or free, updating the nodes from its leaf up to
+     * the root.
+     *
+     * @param seat   The seat number.
+     * @param booked True if the seat is now booked.
+     */
+    public void update(int seat, boolean booked) {
+        if (seat >= 1 && seat <= seatCount) {
+            update(1, 1, seatCount, seat, booked ? 0 : 1);
+        }
+    }
+
+    /**
+     * Finds the first block of free seats that starts at or after a seat.
+     *
+     * @param from  The first seat the block may start at.
+     * @param count The number of seats in the block.
+     * @return The first seat of the block, or -1 if there is none.
+     */
+    public int findFirst(int from, int count) {
+        if (seatCount == 0 || longest[1] < count) {
+            return -1;
+        }
+        int[] run = new int[1];
+        return findFirst(1, 1, seatCount, Math.max(from, 1), count, run);
+    }
+
+    /**
+     * Finds the last block of free seats that ends at or before a seat.
+     *
+     * @param to    The last seat the block may end at.
+     * @param count The number of seats in the block.
+     * @return The first seat of the block, or -1 if there is none.
+     */
+    public int findLast(int to, int count) {
+        if (seatCount == 0 || longest[1] < count) {
+            return -1;
+        }
+        int[] run = new int[1];
+        int end = findLast(1, 1, seatCount, Math.min(to, seatCount), count, run);
+        return end < 0 ? -1 : end - count + 1;
+    }
+
+    /**
+     * Builds a node from the booked seats.
+     *
+     * @param node   The index of the node.
+     * @param lo     The first seat of the node.
+     * @param hi     The last seat of the node.
+     * @param booked The booked seats.
+     */
+    private void build(int node, int lo, int hi, boolean[] booked) {
+        if (lo == hi) {
+            int free = booked[lo] ? 0 : 1;
+            prefix[node] = free;
+            suffix[node] = free;
+            longest[node] = free;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        build(2 * node, lo, mid, booked);
+        build(2 * node + 1, mid + 1, hi, booked);
+        merge(node, lo, mid, hi);
+    }
+
+    /**
+     * Sets a seat in a node and the nodes below it.
+     *
+     * @param node The index of the node.
+     * @param lo   The first seat of the node.
+     * @param hi   The last seat of the node.
+     * @param seat The seat number.
+     * @param free 1 if the seat is free, or 0 if it is booked.
+     */
+    private void update(int node, int lo, int hi, int seat, int free) {
+        if (lo == hi) {
+            prefix[node] = free;
+            suffix[node] = free;
+            longest[node] = free;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (seat <= mid) {
+            update(2 * node, lo, mid, seat, free);
+        } else {
+            update(2 * node + 1, mid + 1, hi, seat, free);
+        }
+        merge(node, lo, mid, hi);
+    }
+
+    /**
+     * Sets the runs of a node from the runs of its two children.
+     *
+     * @param node The index of the node.
+     * @param lo   The first seat of the node.
+     * @param mid  The last seat of the left child.
+     * @param hi   The last seat of the node.
+     */
+    private void merge(int node, int lo, int mid, int hi) {
+        int left = 2 * node;
+        int right = 2 * node + 1;
+        int leftLength = mid - lo + 1;
+        int rightLength = hi - mid;
+        prefix[node] = prefix[left] == leftLength ? leftLength + prefix[right] : prefix[left];
+        suffix[node] = suffix[right] == rightLength ? rightLength + suffix[left] : suffix[right];
+        longest[node] = Math.max(Math.max(longest[left], longest[right]), suffix[left] + prefix[right]);
+    }
+
+    /**
+     * Finds the first block inside a node, going from left to right.
+     *
+     * @param node  The index of the node.
+     * @param lo    The first seat of the node.
+     * @param hi    The last seat of the node.
+     * @param from  The first seat the block may start at.
+     * @param count The number of seats in the block.
+     * @param run   The free run ending just before the node, updated to the
+     *              free run ending at the end of the node.
+     * @return The first seat of the block, or -1 if it is not in this node.
+     */
+    private int findFirst(int node, int lo, int hi, int from, int count, int[] run) {
+        if (hi < from) {
+            return -1;
+        }
+        int length = hi - lo + 1;
+        if (lo >= from) {
+            if (run[0] + prefix[node] >= count) {
+                return lo - run[0];
+            }
+            if (longest[node] < count) {
+                run[0] = prefix[node] == length ? run[0] + length : suffix[node];
+                return -1;
+            }
+        }
+        int mid = (lo + hi) >>> 1;
+        int found = findFirst(2 * node, lo, mid, from, count, run);
+        return found >= 0 ? found : findFirst(2 * node + 1, mid + 1, hi, from, count, run);
+    }
+
+    /**
+     * Finds the last block inside a node, going from right to left.
+     *
+     * @param node  The index of the node.
+     * @param lo    The first seat of the node.
+     * @param hi    The last seat of the node.
+     * @param to    The last seat the block may end at.
+     * @param count The number of seats in the block.
+     * @param run   The free run starting just after the node, updated to the
+     *              free run starting at the start of the node.
+     * @return The last seat of the block, or -1 if it is not in this node.
+     */
+    private int findLast(int node, int lo, int hi, int to, int count, int[] run) {
+        if (lo > to) {
+            return -1;
+        }
+        int length = hi - lo + 1;
+        if (hi <= to) {
+            if (run[0] + suffix[node] >= count) {
+                return hi + run[0];
+            }
+            if (longest[node] < count) {
+                run[0] = suffix[node] == length ? run[0] + length : prefix[node];
+                return -1;
+            }
+        }
+        int mid = (lo + hi) >>> 1;
+        int found = findLast(2 * node + 1, mid + 1, hi, to, count, run);
+        return found >= 0 ? found : findLast(2 * node, lo, mid, to, count, run);
+    }
+}
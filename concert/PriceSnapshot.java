@@ -0,0 +1,92 @@
+package concert;
+
+import booking.ZoneType;
+
+/**
+ * Class to hold the left, middle and right prices of every zone of a concert
+ * at one point in time. A snapshot is never changed; a price change makes a
+ * new snapshot, so anyone holding a snapshot always sees a whole set of
+ * prices. Each snapshot builds its own seat price
+ * table, so bookings priced from an older snapshot do not rebuild the table
+ * of the current one.
+ */
+public final class PriceSnapshot {
+    private final long[][] prices; // indexed by zone, then section, in cents
+    private volatile SeatPriceTable seatPrices; // built when first needed
+
+    /**
+     * Constructor to initialize the first PriceSnapshot object of a concert.
+     *
+     * @param standingPrice The left, middle and right standing prices in cents.
+     * @param seatingPrice  The left, middle and right seating prices in cents.
+     * @param vipPrice      The left, middle and right VIP prices in cents.
+     */
+    public PriceSnapshot(long[] standingPrice, long[] seatingPrice, long[] vipPrice) {
+        this.prices = new long[ZoneType.count()][];
+        prices[ZoneType.STANDING.ordinal()] = standingPrice.clone();
+        prices[ZoneType.SEATING.ordinal()] = seatingPrice.clone();
+        prices[ZoneType.VIP.ordinal()] = vipPrice.clone();
+    }
+
+    /**
+     * Constructor to initialize a PriceSnapshot object from an older one.
+     *
+     * @param prices The prices, which are not shared with anyone else.
+     */
+    private PriceSnapshot(long[][] prices) {
+        this.prices = prices;
+    }
+
+    /**
+     * Gets a price.
+     *
+     * @param zone    The zone.
+     * @param section The section of the zone.
+     * @return The price in cents.
+     */
+    public long getPrice(ZoneType zone, Section section) {
+        return prices[zone.ordinal()][section.ordinal()];
+    }
+
+    /**
+     * Gets the prices of a zone.
+     *
+     * @param zone The zone.
+     * @return An array containing the prices in cents for left, middle, and
+     *         right seats.
+     */
+    public long[] getPrices(ZoneType zone) {
+        return prices[zone.ordinal()].clone();
+    }
+
+    /**
+     * Gets the price of every seat of a venue at these prices, building the
+     * table the first time or if the venue has changed.
+     *
+     * @param template The layout of the concert's venue.
+     * @return The seat price table.
+     */
+    public SeatPriceTable getSeatPrices(VenueTemplate template) {
+        SeatPriceTable table = seatPrices;
+        if (table == null || !table.isFor(template)) {
+            table = new SeatPriceTable(this, template);
+            seatPrices = table;
+        }
+        return table;
+    }
+
+    /**
+     * Makes the next snapshot, with new prices for one zone.
+     *
+     * @param zone       The zone.
+     * @param leftPrice  The price for left seats in cents.
+     * @param midPrice   The price for middle seats in cents.
+     * @param rightPrice The price for right seats in cents.
+     * @return The new snapshot.
+     */
+    public PriceSnapshot withPrices(ZoneType zone, long leftPrice, long midPrice, long rightPrice) {
+        long[][] next = prices.clone();
+        next[zone.ordinal()] = new long[] { leftPrice, midPrice, rightPrice };
+        return new PriceSnapshot(next);
+    }
+}
@@ -0,0 +1,268 @@
+package concert;
+
+import booking.ZoneType;
+
+/**
+ * Class to find the best block of adjacent free seats in a zone of a concert.
+ * Each row has a FreeRunTree built from the seat occupancy the first time the
+ * row is searched, and seats claimed or given back through the finder update
+ * the tree of their row. Seats can also be booked elsewhere, such as by
+ * another process sharing the seat map, so a tree may show a booked seat as
+ * free; a block found in such a tree is checked against the occupancy, and
+ * its booked seats are marked in the tree before searching again.
+ *
+ * Blocks are ranked by how close their middle is to the middle of the row,
+ * then by price, then by how close the row is to the stage. Seats are only
+ * booked by claiming them in the occupancy, so two customers who are shown the
+ * same block cannot both book it.
+ */
+public class SeatFinder {
+    private final VenueTemplate template;
+    private final SeatOccupancy occupancy;
+    private final Concert concert;
+    private final FreeRunTree[][] trees; // indexed by zone, then row number
+
+    /**
+     * Constructor to initialize a SeatFinder object.
+     *
+     * @param concert   The concert.
+     * @param template  The layout of the concert's venue.
+     * @param occupancy The booked seats of the concert.
+     */
+    public SeatFinder(Concert concert, VenueTemplate template, SeatOccupancy occupancy) {
+        this.concert = concert;
+        this.template = template;
+        this.occupancy = occupancy;
+        this.trees = new FreeRunTree[ZoneType.count()][];
+        for (int i = 0; i < ZoneType.count(); i++) {
+            trees[i] = new FreeRunTree[template.getRowCount(ZoneType.of(i)) + 1];
+        }
+    }
+
+    /**
+     * Checks if a block of seats exists in the venue and is free.
+     *
+     * @param zone      The zone.
+     * @param row       The row number.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     * @return True if every seat of the block can be booked.
+     */
+    public boolean isAvailable(ZoneType zone, int row, int firstSeat, int count) {
+        if (count < 1 || !template.isSeat(zone, row, firstSeat) || !template.isSeat(zone, row, firstSeat + count - 1)) {
+            return false;
+        }
+        for (int seat = firstSeat; seat < firstSeat + count; seat++) {
+            if (occupancy.isBooked(zone.getLetter(), row, seat)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claims a block of seats if it exists in the venue and is free.
+     *
+     * @param zone      The zone.
+     * @param row       The row number.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     * @return True if every seat of the block is now booked.
+     */
+    public boolean claim(ZoneType zone, int row, int firstSeat, int count) {
+        if (count < 1 || !template.isSeat(zone, row, firstSeat) || !template.isSeat(zone, row, firstSeat + count - 1)) {
+            return false;
+        }
+        if (!occupancy.claim(zone, row, firstSeat, count)) {
+            return false;
+        }
+        update(zone, row, firstSeat, count, true);
+        return true;
+    }
+
+    /**
+     * Gives back a block of seats claimed for a booking that was not made.
+     *
+     * @param zone      The zone.
+     * @param row       The row number.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     */
+    public void release(ZoneType zone, int row, int firstSeat, int count) {
+        occupancy.release(zone, row, firstSeat, count);
+        update(zone, row, firstSeat, count, false);
+    }
+
+    /**
+     * Claims the best block of adjacent free seats in a zone. A block taken by
+     * someone else between finding and claiming it is found again.
+     *
+     * @param zone  The zone.
+     * @param count The number of seats in the block.
+     * @return The row number and first seat of the claimed block, or null if
+     *         no row has enough adjacent free seats.
+     */
+    public int[] claimBest(ZoneType zone, int count) {
+        while (true) {
+            int[] best = findBest(zone, count);
+            if (best == null) {
+                return null;
+            }
+            if (occupancy.claim(zone, best[0], best[1], count)) {
+                update(zone, best[0], best[1], count, true);
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Finds the best block of adjacent free seats in a zone.
+     *
+     * @param zone  The zone.
+     * @param count The number of seats in the block.
+     * @return The row number and first seat of the block, or null if no row
+     *         has enough adjacent free seats.
+     */
+    public synchronized int[] findBest(ZoneType zone, int count) {
+        if (count < 1 || count > template.getSeatCount()) {
+            return null;
+        }
+        while (true) {
+            int bestRow = -1;
+            int bestSeat = -1;
+            long bestDistance = Long.MAX_VALUE;
+            long bestPrice = Long.MAX_VALUE;
+            for (int row = 1; row < trees[zone.ordinal()].length; row++) {
+                int seat = findBestInRow(getTree(zone, row), count);
+                if (seat < 0) {
+                    continue;
+                }
+                long distance = getDistance(seat, count);
+                if (distance > bestDistance) {
+                    continue;
+                }
+                long price = getPrice(zone, seat, count);
+                if (distance < bestDistance || price < bestPrice) {
+                    bestRow = row;
+                    bestSeat = seat;
+                    bestDistance = distance;
+                    bestPrice = price;
+                }
+            }
+            if (bestRow < 0) {
+                return null;
+            }
+            if (isAvailable(zone, bestRow, bestSeat, count)) {
+                return new int[] { bestRow, bestSeat };
+            }
+            FreeRunTree tree = trees[zone.ordinal()][bestRow];
+            for (int seat = bestSeat; seat < bestSeat + count; seat++) {
+                if (occupancy.isBooked(zone.getLetter(), bestRow, seat)) {
+                    tree.update(seat, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks a block of seats as booked or free in the tree of its row, if the
+     * row has been searched yet.
+     *
+     * @param zone      The zone.
+     * @param row       The row number.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     * @param booked    True if the seats are now booked.
+     */
+    private synchronized void update(ZoneType zone, int row, int firstSeat, int count, boolean booked) {
+        FreeRunTree tree = trees[zone.ordinal()][row];
+        if (tree == null) {
+            return;
+        }
+        for (int seat = firstSeat; seat < firstSeat + count; seat++) {
+            tree.update(seat, booked);
+        }
+    }
+
+    /**
+     * Finds the most central block in a row.
+     *
+     * @param tree  The free runs of the row.
+     * @param count The number of seats in the block.
+     * @return The first seat of the block, or -1 if the row has no such block.
+     */
+    private int findBestInRow(FreeRunTree tree, int count) {
+        if (tree.getLongestRun() < count) {
+            return -1;
+        }
+        // the block that would sit exactly in the middle of the row
+        int idealStart = (template.getSeatCount() - count) / 2 + 1;
+        int after = tree.findFirst(idealStart, count);
+        int before = tree.findLast(idealStart + count - 1, count);
+        if (after < 0) {
+            return before;
+        }
+        if (before < 0) {
+            return after;
+        }
+        return getDistance(before, count) <= getDistance(after, count) ? before : after;
+    }
+
+    /**
+     * Gets how far the middle of a block is from the middle of the row.
+     *
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     * @return Twice the distance, so that it is a whole number.
+     */
+    private long getDistance(int firstSeat, int count) {
+        return Math.abs(2L * firstSeat + count - 1 - (template.getSeatCount() + 1));
+    }
+
+    /**
+     * Gets the total price of a block.
+     *
+     * @param zone      The zone.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     * @return The total price in cents.
+     */
+    private long getPrice(ZoneType zone, int firstSeat, int count) {
+        long total = 0;
+        for (int seat = firstSeat; seat < firstSeat + count; seat++) {
+            total += concert.getSeatPrice(template, zone, seat);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the tree of a row, building it the first time.
+     *
+     * @param zone The zone.
+     * @param row  The row number.
+     * @return The free runs of the row.
+     */
+    private FreeRunTree getTree(ZoneType zone, int row) {
+        FreeRunTree tree = trees[zone.ordinal()][row];
+        if (tree == null) {
+            tree = buildTree(zone, row);
+            trees[zone.ordinal()][row] = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * Builds the tree of a row from the seat occupancy.
+     *
+     * @param zone The zone.
+     * @param row  The row number.
+     * @return The free runs of the row.
+     */
+    private FreeRunTree buildTree(ZoneType zone, int row) {
+        boolean[] booked = new boolean[template.getSeatCount() + 1];
+        for (int seat = 1; seat < booked.length; seat++) {
+            booked[seat] = occupancy.isBooked(zone.getLetter(), row, seat);
+        }
+        return new FreeRunTree(template.getSeatCount(), booked);
+    }
+}
@@ -0,0 +1,346 @@
+package concert;
+
+import booking.Booking;
+import booking.BookingRepository;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * Class to keep the booked seats of every concert in a memory-mapped file next
+ * to the booking file, with one region of seat bitmaps per concert. Processes
+ * that map the same file see each other's bookings as soon as they are made,
+ * and a restart maps the regions instead of marking the seats of every booking
+ * again. A region is created, and filled from the loaded bookings, the first
+ * time its concert's venue is needed.
+ *
+ * The file starts with a header and a directory of regions. Each directory
+ * entry holds the concert ID, where the region starts, the size of the venue
+ * it was made for and the fingerprint of the booking file and journal it
+ * matches. Seats are claimed in the file before their booking is saved, so a
+ * region can only be trusted while a process is using it, or if the last
+ * process to close the file saved its bookings and left their fingerprint.
+ * The first process to open the file after all others have stopped refills
+ * every region whose fingerprint does not match, which drops the seats of
+ * bookings that were never saved and picks up changes made to the booking
+ * file without the seat map.
+ *
+ * Each process holds a shared lock on a byte far past the end of the file for
+ * as long as it uses the seat map, so a process can tell if it is alone, and
+ * the header counts the processes that opened the file and have not closed it.
+ * If one of them stopped without closing, the last process to close leaves no
+ * fingerprint. The directory is changed while holding a lock on the header.
+ */
+public class SeatMapFile {
+    private static final String SEAT_MAP_SUFFIX = ".seats";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final int MAGIC = 0x544D534D; // "TMSM"
+    private static final int VERSION = 2;
+    private static final int MAX_REGIONS = 16384;
+    private static final int MAX_ID_LENGTH = 23;
+    private static final int ENTRY_SIZE = 64;
+    private static final int HEADER_SIZE = 64;
+    private static final int DIRECTORY_SIZE = HEADER_SIZE + MAX_REGIONS * ENTRY_SIZE;
+    private static final long USERS_POSITION = Long.MAX_VALUE - 1;
+
+    // header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int END_OFFSET = 16;
+    private static final int UNUSED_OFFSET = 24;
+    private static final int USERS_OFFSET = 32;
+
+    // directory entry fields
+    private static final int ID_OFFSET = 0;
+    private static final int REGION_OFFSET = 24;
+    private static final int ROWS_OFFSET = 32;
+    private static final int SEATS_OFFSET = 36;
+    private static final int CAPACITY_OFFSET = 40;
+    private static final int STALE_OFFSET = 44;
+    private static final int BOOKING_STAMP_OFFSET = 48;
+    private static final int JOURNAL_STAMP_OFFSET = 56;
+
+    private String bookingPath;
+    private FileChannel channel;
+    private MappedByteBuffer directory;
+    private FileLock usersLock;
+    private HashMap<String, SeatOccupancy> regions = new HashMap<String, SeatOccupancy>();
+
+    /**
+     * Constructor to initialize a SeatMapFile object.
+     *
+     * @param bookingPath The path to the booking file.
+     * @param channel     The open seat map file.
+     * @param directory   The mapped header and directory.
+     * @param usersLock   The shared lock held while the seat map is used.
+     */
+    private SeatMapFile(String bookingPath, FileChannel channel, MappedByteBuffer directory, FileLock usersLock) {
+        this.bookingPath = bookingPath;
+        this.channel = channel;
+        this.directory = directory;
+        this.usersLock = usersLock;
+    }
+
+    /**
+     * Opens the seat map of a booking file, creating it if there is none. The
+     * bookings must already be loaded from the booking file and journal.
+     *
+     * @param bookingPath The path to the booking file.
+     * @return The seat map, or null if it cannot be opened.
+     */
+    public static SeatMapFile open(String bookingPath) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Paths.get(bookingPath + SEAT_MAP_SUFFIX), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock directoryLock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_WRITE, 0, DIRECTORY_SIZE);
+                directory.order(ByteOrder.LITTLE_ENDIAN);
+                FileLock alone = channel.tryLock(USERS_POSITION, 1, false);
+                if (alone != null) {
+                    // no other process uses the seat map, so its regions are checked against the bookings
+                    if (directory.getInt(MAGIC_OFFSET) != MAGIC || directory.getInt(VERSION_OFFSET) != VERSION
+                            || directory.getLong(UNUSED_OFFSET) > 0) {
+                        // a new file, one that cannot be trusted, or one with unused space starts again empty
+                        reset(channel, directory);
+                    } else {
+                        markStale(directory, getStamp(bookingPath), getStamp(bookingPath + JOURNAL_SUFFIX));
+                    }
+                    directory.putInt(USERS_OFFSET, 0);
+                    alone.release();
+                } else if (directory.getInt(MAGIC_OFFSET) != MAGIC || directory.getInt(VERSION_OFFSET) != VERSION) {
+                    // another process uses a seat map this program cannot read
+                    throw new IOException(bookingPath + SEAT_MAP_SUFFIX + " cannot be read");
+                }
+                // the regions are about to change, so none of them matches the saved bookings any more
+                int count = directory.getInt(COUNT_OFFSET);
+                for (int i = 0; i < count; i++) {
+                    int entry = HEADER_SIZE + i * ENTRY_SIZE;
+                    directory.putLong(entry + BOOKING_STAMP_OFFSET, 0);
+                    directory.putLong(entry + JOURNAL_STAMP_OFFSET, 0);
+                }
+                directory.putInt(USERS_OFFSET, directory.getInt(USERS_OFFSET) + 1);
+                FileLock usersLock = channel.lock(USERS_POSITION, 1, true);
+                return new SeatMapFile(bookingPath, channel, directory, usersLock);
+            } finally {
+                directoryLock.release();
+            }
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeError) {
+                    // the seat map is not used
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Gets the booked seats of a concert. A region that does not exist yet, or
+     * that no longer matches the bookings, is filled from the bookings of the
+     * concert.
+     *
+     * @param concertId The ID of the concert.
+     * @param template  The layout of the concert's venue.
+     * @param bookings  The loaded bookings.
+     * @return The booked seats, or null if the concert cannot have a region.
+     */
+    public synchronized SeatOccupancy get(String concertId, VenueTemplate template, BookingRepository bookings) {
+        SeatOccupancy occupancy = regions.get(concertId);
+        if (occupancy != null) {
+            return occupancy;
+        }
+        byte[] id = concertId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_LENGTH) {
+            return null;
+        }
+        int rows = SeatOccupancy.getRowsPerZone(template);
+        int seats = SeatOccupancy.getSeatsPerRow(template);
+        int size = SeatOccupancy.getSize(rows, seats);
+        try {
+            FileLock directoryLock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                int entry = findEntry(id);
+                if (entry >= 0 && directory.getInt(entry + ROWS_OFFSET) == rows
+                        && directory.getInt(entry + SEATS_OFFSET) == seats
+                        && directory.getInt(entry + STALE_OFFSET) == 0) {
+                    long start = directory.getLong(entry + REGION_OFFSET);
+                    occupancy = new SeatOccupancy(rows, seats, mapRegion(start, size));
+                } else {
+                    if (entry < 0) {
+                        int count = directory.getInt(COUNT_OFFSET);
+                        if (count == MAX_REGIONS) {
+                            return null;
+                        }
+                        entry = HEADER_SIZE + count * ENTRY_SIZE;
+                        directory.put(entry + ID_OFFSET, (byte) id.length);
+                        directory.put(entry + ID_OFFSET + 1, id);
+                        directory.putLong(entry + REGION_OFFSET, 0);
+                        directory.putInt(entry + CAPACITY_OFFSET, 0);
+                        directory.putInt(COUNT_OFFSET, count + 1);
+                    }
+                    long start = directory.getLong(entry + REGION_OFFSET);
+                    int capacity = directory.getInt(entry + CAPACITY_OFFSET);
+                    if (size > capacity) {
+                        // the old region is too small for the venue, and its space is given back on a reset
+                        directory.putLong(UNUSED_OFFSET, directory.getLong(UNUSED_OFFSET) + capacity);
+                        start = directory.getLong(END_OFFSET);
+                        capacity = size;
+                        directory.putLong(END_OFFSET, start + size);
+                    }
+                    // mapping past the end grows the file with zeros, which are free seats
+                    MappedByteBuffer region = mapRegion(start, size);
+                    for (int i = 0; i < size; i += Long.BYTES) {
+                        region.putLong(i, 0);
+                    }
+                    occupancy = new SeatOccupancy(rows, seats, region);
+                    for (Booking b : bookings.findByConcert(concertId)) {
+                        occupancy.add(b);
+                    }
+                    directory.putLong(entry + REGION_OFFSET, start);
+                    directory.putInt(entry + ROWS_OFFSET, rows);
+                    directory.putInt(entry + SEATS_OFFSET, seats);
+                    directory.putInt(entry + CAPACITY_OFFSET, capacity);
+                    directory.putInt(entry + STALE_OFFSET, 0);
+                }
+            } finally {
+                directoryLock.release();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        regions.put(concertId, occupancy);
+        return occupancy;
+    }
+
+    /**
+     * Closes the seat map once the bookings have been saved. The last process
+     * to close it records the fingerprint of the saved booking file and
+     * journal in every region, so the next start can trust them.
+     */
+    public synchronized void close() {
+        try {
+            FileLock directoryLock = channel.lock(0, HEADER_SIZE, false);
+            try {
+                usersLock.release();
+                int users = directory.getInt(USERS_OFFSET) - 1;
+                directory.putInt(USERS_OFFSET, users);
+                FileLock alone = channel.tryLock(USERS_POSITION, 1, false);
+                if (alone != null && users == 0) {
+                    long bookingStamp = getStamp(bookingPath);
+                    long journalStamp = getStamp(bookingPath + JOURNAL_SUFFIX);
+                    int count = directory.getInt(COUNT_OFFSET);
+                    for (int i = 0; i < count; i++) {
+                        int entry = HEADER_SIZE + i * ENTRY_SIZE;
+                        directory.putLong(entry + BOOKING_STAMP_OFFSET, bookingStamp);
+                        directory.putLong(entry + JOURNAL_STAMP_OFFSET, journalStamp);
+                    }
+                    directory.force();
+                }
+                if (alone != null) {
+                    alone.release();
+                }
+            } finally {
+                directoryLock.release();
+            }
+            channel.close();
+        } catch (IOException e) {
+            // the regions keep no fingerprint and are filled again on the next start
+        }
+    }
+
+    /**
+     * Empties the seat map, so every region is made again when it is needed.
+     *
+     * @param channel   The open seat map file.
+     * @param directory The mapped header and directory.
+     * @throws IOException If the file cannot be truncated.
+     */
+    private static void reset(FileChannel channel, MappedByteBuffer directory) throws IOException {
+        channel.truncate(DIRECTORY_SIZE);
+        for (int i = 0; i < DIRECTORY_SIZE; i += Long.BYTES) {
+            directory.putLong(i, 0);
+        }
+        directory.putInt(VERSION_OFFSET, VERSION);
+        directory.putLong(END_OFFSET, DIRECTORY_SIZE);
+        directory.putInt(MAGIC_OFFSET, MAGIC);
+    }
+
+    /**
+     * Marks every region that does not match the booking file and journal, so
+     * it is filled again from the bookings when it is needed.
+     *
+     * @param directory    The mapped header and directory.
+     * @param bookingStamp The fingerprint of the booking file.
+     * @param journalStamp The fingerprint of the journal.
+     */
+    private static void markStale(MappedByteBuffer directory, long bookingStamp, long journalStamp) {
+        int count = directory.getInt(COUNT_OFFSET);
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+            if (directory.getLong(entry + BOOKING_STAMP_OFFSET) != bookingStamp
+                    || directory.getLong(entry + JOURNAL_STAMP_OFFSET) != journalStamp) {
+                directory.putInt(entry + STALE_OFFSET, 1);
+            }
+        }
+    }
+
+    /**
+     * Gets the fingerprint of a file from its size and modification time.
+     *
+     * @param path The path to the file.
+     * @return The fingerprint, which is never 0 so that it differs from an
+     *         entry with no fingerprint.
+     */
+    private static long getStamp(String path) {
+        File file = new File(path);
+        return (file.length() * 31 + file.lastModified()) * 31 + 1;
+    }
+
+    /**
+     * Finds the directory entry of a concert.
+     *
+     * @param id The concert ID as UTF-8 bytes.
+     * @return The offset of the entry, or -1 if the concert has no region.
+     */
+    private int findEntry(byte[] id) {
+        int count = directory.getInt(COUNT_OFFSET);
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_SIZE + i * ENTRY_SIZE;
+            if (directory.get(entry + ID_OFFSET) != id.length) {
+                continue;
+            }
+            boolean same = true;
+            for (int j = 0; j < id.length && same; j++) {
+                same = directory.get(entry + ID_OFFSET + 1 + j) == id[j];
+            }
+            if (same) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Maps the region of a concert.
+     *
+     * @param start The offset of the region in the file.
+     * @param size  The size of the region in bytes.
+     * @return The mapped region.
+     * @throws IOException If the region cannot be mapped.
+     */
+    private MappedByteBuffer mapRegion(long start, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+    }
+}
@@ -0,0 +1,342 @@
+package concert;
+
+import booking.Booking;
+import booking.TicketStore;
+import booking.ZoneType;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class to record which seats of a concert are booked. Each row of each zone
+ * is a bitmap with one bit per seat, so checking a seat is a single lookup.
+ * The bitmaps live in a ByteBuffer outside the heap, which can be a region of a
+ * SeatMapFile shared with other processes, and seats are marked with atomic
+ * updates so that no claim is lost.
+ *
+ * Seats are claimed all or nothing. A block within one 64-seat word is
+ * claimed with a single compare-and-set, so claims for the same zone do not
+ * wait for each other. A block that spans words sets them one at a time,
+ * holding the lock of its zone, and gives back the words it already set if a
+ * later one is taken. A claim may then fail because of seats another claim is
+ * about to give back, but a seat is never claimed twice.
+ */
+public class SeatOccupancy {
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    // booked seats, indexed by zone, then row number, then seat number
+    private final ByteBuffer bits;
+    private final int rowsPerZone;
+    private final int wordsPerRow;
+    private final Object[] zoneLocks = new Object[ZoneType.count()];
+
+    /**
+     * Constructor to initialize an empty SeatOccupancy object for a venue.
+     *
+     * @param template The layout of the venue.
+     */
+    public SeatOccupancy(VenueTemplate template) {
+        this(getRowsPerZone(template), getSeatsPerRow(template),
+                ByteBuffer.allocateDirect(getSize(getRowsPerZone(template), getSeatsPerRow(template))));
+    }
+
+    /**
+     * Constructor to initialize a SeatOccupancy object over existing bitmaps.
+     *
+     * @param rowsPerZone The number of rows of each zone, counting row 0.
+     * @param seatsPerRow The number of seats of each row, counting seat 0.
+     * @param bits        The bitmaps, at least getSize(rowsPerZone, seatsPerRow)
+     *                    bytes long.
+     */
+    SeatOccupancy(int rowsPerZone, int seatsPerRow, ByteBuffer bits) {
+        this.rowsPerZone = rowsPerZone;
+        this.wordsPerRow = getWordsPerRow(seatsPerRow);
+        this.bits = bits;
+        for (int i = 0; i < zoneLocks.length; i++) {
+            zoneLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Marks every seat of a booking as booked.
+     *
+     * @param booking The booking.
+     */
+    public void add(Booking booking) {
+        TicketStore tickets = booking.getTickets();
+        for (int i = 0; i < tickets.size(); i++) {
+            ZoneType zone = tickets.getZone(i);
+            int row = tickets.getRow(i);
+            int seat = tickets.getSeat(i);
+            if (zone != null && row >= 0 && seat >= 0) {
+                book(zone.ordinal(), row, seat);
+            }
+        }
+    }
+
+    /**
+     * Checks if a seat is booked.
+     *
+     * @param zoneLetter The letter of the zone, V, S or T.
+     * @param row        The row number.
+     * @param seat       The seat number.
+     * @return True if the seat is booked.
+     */
+    public boolean isBooked(char zoneLetter, int row, int seat) {
+        ZoneType zoneType = ZoneType.fromLetter(zoneLetter);
+        if (zoneType == null) {
+            return false;
+        }
+        int offset = getOffset(zoneType.ordinal(), row, seat);
+        return offset >= 0 && ((long) WORDS.getAcquire(bits, offset) & (1L << seat)) != 0;
+    }
+
+    /**
+     * Claims a block of adjacent seats in a row, all or nothing.
+     *
+     * @param zone      The zone.
+     * @param row       The row number.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     * @return True if every seat was free and is now booked, or false if no
+     *         seat was claimed.
+     */
+    public boolean claim(ZoneType zone, int row, int firstSeat, int count) {
+        int lastSeat = firstSeat + count - 1;
+        if (count < 1 || getOffset(zone.ordinal(), row, firstSeat) < 0
+                || getOffset(zone.ordinal(), row, lastSeat) < 0) {
+            return false;
+        }
+        int firstWord = firstSeat >>> 6;
+        int lastWord = lastSeat >>> 6;
+        if (firstWord == lastWord) {
+            return claimWord(getOffset(zone.ordinal(), row, firstSeat), getMask(firstSeat, lastSeat));
+        }
+        synchronized (zoneLocks[zone.ordinal()]) {
+            for (int word = firstWord; word <= lastWord; word++) {
+                if (!claimWord(getWordOffset(zone, row, word), getWordMask(word, firstSeat, lastSeat))) {
+                    for (int taken = firstWord; taken < word; taken++) {
+                        WORDS.getAndBitwiseAndRelease(bits, getWordOffset(zone, row, taken),
+                                ~getWordMask(taken, firstSeat, lastSeat));
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Gives back a block of seats claimed with claim, such as when its booking
+     * could not be made.
+     *
+     * @param zone      The zone.
+     * @param row       The row number.
+     * @param firstSeat The first seat of the block.
+     * @param count     The number of seats in the block.
+     */
+    public void release(ZoneType zone, int row, int firstSeat, int count) {
+        int lastSeat = firstSeat + count - 1;
+        if (count < 1 || getOffset(zone.ordinal(), row, firstSeat) < 0
+                || getOffset(zone.ordinal(), row, lastSeat) < 0) {
+            return;
+        }
+        for (int word = firstSeat >>> 6; word <= lastSeat >>> 6; word++) {
+            WORDS.getAndBitwiseAndRelease(bits, getWordOffset(zone, row, word),
+                    ~getWordMask(word, firstSeat, lastSeat));
+        }
+    }
+
+    /**
+     * Sets the bits of a mask in a word if none of them is set yet.
+     *
+     * @param offset The byte offset of the word.
+     * @param mask   The bits of the seats.
+     * @return True if the bits were set.
+     */
+    private boolean claimWord(int offset, long mask) {
+        long current = (long) WORDS.getVolatile(bits, offset);
+        while ((current & mask) == 0) {
+            long witness = (long) WORDS.compareAndExchange(bits, offset, current, current | mask);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the byte offset of a word of a row.
+     *
+     * @param zone The zone.
+     * @param row  The row number.
+     * @param word The index of the word in the row.
+     * @return The byte offset of the word.
+     */
+    private int getWordOffset(ZoneType zone, int row, int word) {
+        return getOffset(zone.ordinal(), row, word << 6);
+    }
+
+    /**
+     * Gets the bits of a block of seats that fall in one word.
+     *
+     * @param word      The index of the word in the row.
+     * @param firstSeat The first seat of the block.
+     * @param lastSeat  The last seat of the block.
+     * @return The bits of the seats of the block in the word.
+     */
+    private static long getWordMask(int word, int firstSeat, int lastSeat) {
+        return getMask(Math.max(firstSeat, word << 6), Math.min(lastSeat, (word << 6) + 63));
+    }
+
+    /**
+     * Gets the bits of a block of seats within one word.
+     *
+     * @param firstSeat The first seat of the block.
+     * @param lastSeat  The last seat of the block, in the same word.
+     * @return The bits of the seats.
+     */
+    private static long getMask(int firstSeat, int lastSeat) {
+        return (-1L << firstSeat) & (-1L >>> (63 - (lastSeat & 63)));
+    }
+
+    /**
+     * Marks a seat as booked. A seat outside the venue is not recorded, as it
+     * is never shown.
+     *
+     * @param zone The index of the zone.
+     * @param row  The row number.
+     * @param seat The seat number.
+     */
+    private void book(int zone, int row, int seat) {
+        int offset = getOffset(zone, row, seat);
+        if (offset >= 0) {
+            WORDS.getAndBitwiseOrRelease(bits, offset, 1L << seat);
+        }
+    }
+
+    /**
+     * Gets the position of the word holding a seat.
+     *
+     * @param zone The index of the zone.
+     * @param row  The row number.
+     * @param seat The seat number.
+     * @return The byte offset of the word, or -1 if the seat is outside the
+     *         venue.
+     */
+    private int getOffset(int zone, int row, int seat) {
+        int word = seat >>> 6;
+        if (row < 0 || row >= rowsPerZone || seat < 0 || word >= wordsPerRow) {
+            return -1;
+        }
+        return ((zone * rowsPerZone + row) * wordsPerRow + word) * Long.BYTES;
+    }
+
+    /**
+     * Renders a row of the venue layout with booked seats shown as [X]. The
+     * row label, such as V1 or S12, is read up to the first space.
+     *
+     * @param line A line of the venue layout.
+     * @return The line with booked seats marked.
+     */
+    public String render(String line) {
+        int labelEnd = line.indexOf(' ');
+        if (labelEnd < 2) {
+            return line;
+        }
+        char zoneLetter = line.charAt(0);
+        int row = parseNumber(line.substring(1, labelEnd));
+        if (ZoneType.fromLetter(zoneLetter) == null || row < 0) {
+            return line;
+        }
+        StringBuilder sb = new StringBuilder(line.length());
+        int i = 0;
+        while (i < line.length()) {
+            int open = line.indexOf('[', i);
+            int close = open < 0 ? -1 : line.indexOf(']', open);
+            if (close < 0) {
+                sb.append(line, i, line.length());
+                break;
+            }
+            sb.append(line, i, open);
+            if (isBooked(zoneLetter, row, parseNumber(line.substring(open + 1, close)))) {
+                sb.append("[X]");
+            } else {
+                sb.append(line, open, close + 1);
+            }
+            i = close + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the number of rows of each zone of a venue, counting row 0 as rows
+     * are numbered from 1.
+     *
+     * @param template The layout of the venue.
+     * @return The number of rows of each zone.
+     */
+    static int getRowsPerZone(VenueTemplate template) {
+        int rows = 0;
+        for (int i = 0; i < ZoneType.count(); i++) {
+            rows = Math.max(rows, template.getRowCount(ZoneType.of(i)));
+        }
+        return rows + 1;
+    }
+
+    /**
+     * Gets the number of seats of each row of a venue, counting seat 0 as
+     * seats are numbered from 1.
+     *
+     * @param template The layout of the venue.
+     * @return The number of seats of each row.
+     */
+    static int getSeatsPerRow(VenueTemplate template) {
+        return template.getSeatCount() + 1;
+    }
+
+    /**
+     * Gets the number of bytes needed for the bitmaps of a venue.
+     *
+     * @param rowsPerZone The number of rows of each zone.
+     * @param seatsPerRow The number of seats of each row.
+     * @return The size of the bitmaps in bytes.
+     */
+    static int getSize(int rowsPerZone, int seatsPerRow) {
+        return ZoneType.count() * rowsPerZone * getWordsPerRow(seatsPerRow) * Long.BYTES;
+    }
+
+    /**
+     * Gets the number of words needed for the seats of a row.
+     *
+     * @param seatsPerRow The number of seats of each row.
+     * @return The number of words of each row.
+     */
+    private static int getWordsPerRow(int seatsPerRow) {
+        return (seatsPerRow + 63) >>> 6;
+    }
+
+    /**
+     * Parses a row or seat number.
+     *
+     * @param s The text of the number.
+     * @return The number, or -1 if it is not a number.
+     */
+    private static int parseNumber(String s) {
+        if (s.isEmpty() || s.length() > 9) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+}
@@ -0,0 +1,55 @@
+package concert;
+
+import booking.ZoneType;
+
+/**
+ * Class to hold the price of every seat of a concert in one flat array, built
+ * from a price snapshot of the concert and the sections of its venue. Looking
+ * up a price is a single array index. A table is never changed; new prices
+ * build a new table.
+ */
+public final class SeatPriceTable {
+    private final VenueTemplate template;
+    private final int seatsPerZone;
+    private final long[] prices; // indexed by zone, then seat number up to one past the row
+
+    /**
+     * Constructor to build a SeatPriceTable object.
+     *
+     * @param snapshot The prices of the concert.
+     * @param template The layout of the concert's venue.
+     */
+    public SeatPriceTable(PriceSnapshot snapshot, VenueTemplate template) {
+        this.template = template;
+        this.seatsPerZone = template.getSeatCount() + 2;
+        this.prices = new long[ZoneType.count() * seatsPerZone];
+        for (int i = 0; i < ZoneType.count(); i++) {
+            for (int seat = 0; seat < seatsPerZone; seat++) {
+                prices[i * seatsPerZone + seat] = snapshot.getPrice(ZoneType.of(i), template.getSection(seat));
+            }
+        }
+    }
+
+    /**
+     * Checks if the table was built for a venue layout.
+     *
+     * @param template The layout of the venue.
+     * @return True if the table was built for the layout.
+     */
+    public boolean isFor(VenueTemplate template) {
+        return this.template == template;
+    }
+
+    /**
+     * Gets the price of a seat. A seat number outside the row has the price
+     * of the section it would be in.
+     *
+     * @param zone The zone of the seat.
+     * @param seat The seat number.
+     * @return The price in cents.
+     */
+    public long getPrice(ZoneType zone, int seat) {
+        int index = Math.max(0, Math.min(seat, seatsPerZone - 1));
+        return prices[zone.ordinal() * seatsPerZone + index];
+    }
+}
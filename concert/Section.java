@@ -0,0 +1,11 @@
+package concert;
+
+/**
+ * Enum of the sections of a row, in the same order as the left, middle and
+ * right prices of a zone.
+ */
+public enum Section {
+    LEFT,
+    MIDDLE,
+    RIGHT
+}
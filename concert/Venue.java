@@ -1,54 +1,43 @@
 package concert;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
- * class to represents layout of venue
+ * class to represents layout of venue for a concert. The layout itself is a
+ * VenueTemplate shared by every concert at the same venue.
  *
  * @author Yoshikazu Fujisaka
  */
 public class Venue {
 
-    // define what data fields will be used to define the venue layout
+    // the concert this venue belongs to and the layout it shares
 
     private String id;
-    private int numberOfRow;
-    private int numberOfColumn;
-    private int totalSeats;
-    private ArrayList<String> layout;
-    private int numberOfLeftColumn;
-    private int numberOfMiddleColumn;
-    private int numberOfRightColumn;
-    private int rowSeating;
-    private int rowVip;
-    private int rowStanding;
+    private VenueTemplate template;
+    private SeatOccupancy occupancy;
+    private SeatFinder finder;
+
+    /**
+     * Constructor to initialize a Venue object with no seats booked.
+     *
+     * @param id       The venue ID.
+     * @param template The shared layout of the venue.
+     */
+    public Venue(String id, VenueTemplate template) {
+        this(id, template, new SeatOccupancy(template));
+    }
 
     /**
      * Constructor to initialize a Venue object.
      *
-     * @param id          The venue ID.
-     * @param rowVip      The number of rows for VIP seating.
-     * @param rowSeating  The number of rows for Seating.
-     * @param rowStanding The number of rows for Standing.
-     * @param leftCol     The number of left columns.
-     * @param midCol      The number of middle columns.
-     * @param rightCol    The number of right columns.
-     * @param layout      The layout of the venue as a list of strings.
+     * @param id        The venue ID.
+     * @param template  The shared layout of the venue.
+     * @param occupancy The booked seats of the concert.
      */
-    public Venue(String id, int rowVip, int rowSeating, int rowStanding, int leftCol, int midCol, int rightCol,
-            ArrayList<String> layout) {
+    public Venue(String id, VenueTemplate template, SeatOccupancy occupancy) {
         this.id = id;
-        this.rowVip = rowVip;
-        this.rowSeating = rowSeating;
-        this.rowStanding = rowStanding;
-        this.numberOfRow = rowVip + rowSeating + rowStanding;
-        this.numberOfLeftColumn = leftCol;
-        this.numberOfMiddleColumn = midCol;
-        this.numberOfRightColumn = rightCol;
-        this.numberOfColumn = leftCol + midCol + rightCol;
-        this.totalSeats = numberOfRow * numberOfColumn;
-        this.layout = layout;
-
+        this.template = template;
+        this.occupancy = occupancy;
     }
 
     /**
@@ -57,7 +46,7 @@ public class Venue {
      * @return The total number of seats in the venue.
      */
     public int getTotalSeats() {
-        return totalSeats;
+        return template.getTotalSeats();
     }
 
     /**
@@ -69,13 +58,44 @@ public class Venue {
         return id;
     }
 
+    /**
+     * Gets the shared layout of the venue.
+     *
+     * @return The venue template.
+     */
+    public VenueTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Gets the booked seats of the concert.
+     *
+     * @return The seat occupancy of the concert.
+     */
+    public SeatOccupancy getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Gets the finder of free seats, creating it the first time.
+     *
+     * @param concert The concert held at this venue.
+     * @return The finder of free seats.
+     */
+    public synchronized SeatFinder getSeatFinder(Concert concert) {
+        if (finder == null) {
+            finder = new SeatFinder(concert, template, occupancy);
+        }
+        return finder;
+    }
+
     /**
      * Gets the layout of the venue.
      *
-     * @return The layout of the venue as a list of strings.
+     * @return The layout of the venue as a read-only list of strings.
      */
-    public ArrayList<String> getLayout() {
-        return layout;
+    public List<String> getLayout() {
+        return template.getLayout();
     }
 
     /**
@@ -84,7 +104,7 @@ public class Venue {
      * @return The number of left columns.
      */
     public int getNumberOfLeftColumn() {
-        return numberOfLeftColumn;
+        return template.getNumberOfLeftColumn();
     }
 
     /**
@@ -93,7 +113,7 @@ public class Venue {
      * @return The number of middle columns.
      */
     public int getNumberOfMiddleColumn() {
-        return numberOfMiddleColumn;
+        return template.getNumberOfMiddleColumn();
     }
 
     /**
@@ -102,7 +122,7 @@ public class Venue {
      * @return The number of right columns.
      */
     public int getNumberOfRightColumn() {
-        return numberOfRightColumn;
+        return template.getNumberOfRightColumn();
     }
 
 }
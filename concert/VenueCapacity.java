@@ -0,0 +1,116 @@
+package concert;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Class to represent the seat counts of a venue without its layout. The counts
+ * are kept in a small header file next to the venue file, so the concert list
+ * can show the total seats of a venue without parsing its layout.
+ */
+public final class VenueCapacity {
+    private static final String HEADER_SUFFIX = ".cap";
+    private static final int HEADER_LENGTH = 8;
+
+    private final int rowVip;
+    private final int rowSeating;
+    private final int rowStanding;
+    private final int numberOfLeftColumn;
+    private final int numberOfMiddleColumn;
+    private final int numberOfRightColumn;
+
+    /**
+     * Constructor to initialize a VenueCapacity object from a parsed layout.
+     *
+     * @param template The parsed layout of the venue.
+     */
+    public VenueCapacity(VenueTemplate template) {
+        this(template.getRowVip(), template.getRowSeating(), template.getRowStanding(),
+                template.getNumberOfLeftColumn(), template.getNumberOfMiddleColumn(),
+                template.getNumberOfRightColumn());
+    }
+
+    /**
+     * Constructor to initialize a VenueCapacity object.
+     *
+     * @param rowVip      The number of rows for VIP seating.
+     * @param rowSeating  The number of rows for Seating.
+     * @param rowStanding The number of rows for Standing.
+     * @param leftCol     The number of left columns.
+     * @param midCol      The number of middle columns.
+     * @param rightCol    The number of right columns.
+     */
+    private VenueCapacity(int rowVip, int rowSeating, int rowStanding, int leftCol, int midCol, int rightCol) {
+        this.rowVip = rowVip;
+        this.rowSeating = rowSeating;
+        this.rowStanding = rowStanding;
+        this.numberOfLeftColumn = leftCol;
+        this.numberOfMiddleColumn = midCol;
+        this.numberOfRightColumn = rightCol;
+    }
+
+    /**
+     * Gets the total number of seats.
+     *
+     * @return The total number of seats in the venue.
+     */
+    public int getTotalSeats() {
+        return (rowVip + rowSeating + rowStanding)
+                * (numberOfLeftColumn + numberOfMiddleColumn + numberOfRightColumn);
+    }
+
+    /**
+     * Reads the header of a venue file if it is newer than the venue file.
+     *
+     * @param venuePath The path to the venue file.
+     * @return The seat counts, or null if there is no up to date header.
+     */
+    public static VenueCapacity read(String venuePath) {
+        File venue = new File(venuePath);
+        File header = new File(venuePath + HEADER_SUFFIX);
+        if (!header.exists()) {
+            return null;
+        }
+        try {
+            BufferedReader br = new BufferedReader(new FileReader(header));
+            String line = br.readLine();
+            br.close();
+            String[] parts = line == null ? new String[0] : line.split(",");
+            if (parts.length < HEADER_LENGTH || Long.parseLong(parts[0]) != venue.length()
+                    || Long.parseLong(parts[1]) != venue.lastModified()) {
+                return null;
+            }
+            return new VenueCapacity(Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+                    Integer.parseInt(parts[4]), Integer.parseInt(parts[5]), Integer.parseInt(parts[6]),
+                    Integer.parseInt(parts[7]));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the header of a venue file. A header that cannot be written is
+     * skipped, as it is only used to avoid parsing the venue file.
+     *
+     * @param venuePath The path to the venue file.
+     */
+    public void write(String venuePath) {
+        File venue = new File(venuePath);
+        if (!venue.exists()) {
+            return;
+        }
+        try {
+            PrintWriter pw = new PrintWriter(new FileWriter(venuePath + HEADER_SUFFIX));
+            pw.println(venue.length() + "," + venue.lastModified() + "," + rowVip + "," + rowSeating + ","
+                    + rowStanding + "," + numberOfLeftColumn + "," + numberOfMiddleColumn + ","
+                    + numberOfRightColumn);
+            pw.close();
+        } catch (IOException e) {
+            // the header is rebuilt from the venue file next time
+        }
+    }
+}
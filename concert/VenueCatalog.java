@@ -0,0 +1,142 @@
+package concert;
+
+import booking.Booking;
+import booking.BookingRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Class to find the venue of each concert. Venues are created the first time
+ * they are needed, venue files are parsed at most once, and the total seats of
+ * a venue come from its capacity header without parsing the layout. A new venue
+ * starts with the seats of the loaded bookings of its concert marked as booked,
+ * or with the seats kept in the seat map file when one is used.
+ */
+public class VenueCatalog {
+
+    private ArrayList<Concert> concerts;
+    private BookingRepository bookings;
+    private HashMap<String, String> pathsByVenue;
+    private String defaultPath;
+    private HashMap<String, String> pathsByConcert;
+    private SeatMapFile seatMap;
+    private HashMap<String, Venue> venues = new HashMap<String, Venue>();
+    private HashMap<String, VenueTemplate> templates = new HashMap<String, VenueTemplate>();
+    private HashMap<String, VenueCapacity> capacities = new HashMap<String, VenueCapacity>();
+
+    /**
+     * Constructor to initialize a VenueCatalog object.
+     *
+     * @param concerts     A list of concerts.
+     * @param bookings     A list of bookings.
+     * @param pathsByVenue A map of venue names to venue file paths.
+     * @param defaultPath  The venue file used for a venue without its own file.
+     */
+    public VenueCatalog(ArrayList<Concert> concerts, BookingRepository bookings,
+            HashMap<String, String> pathsByVenue, String defaultPath) {
+        this.concerts = concerts;
+        this.bookings = bookings;
+        this.pathsByVenue = pathsByVenue;
+        this.defaultPath = defaultPath;
+    }
+
+    /**
+     * Constructor to initialize a VenueCatalog object that keeps booked seats
+     * in a seat map file.
+     *
+     * @param concerts     A list of concerts.
+     * @param bookings     A list of bookings.
+     * @param pathsByVenue A map of venue names to venue file paths.
+     * @param defaultPath  The venue file used for a venue without its own file.
+     * @param seatMap      The seat map file, or null to keep seats in memory.
+     */
+    public VenueCatalog(ArrayList<Concert> concerts, BookingRepository bookings,
+            HashMap<String, String> pathsByVenue, String defaultPath, SeatMapFile seatMap) {
+        this(concerts, bookings, pathsByVenue, defaultPath);
+        this.seatMap = seatMap;
+    }
+
+    /**
+     * Gets the venue of a concert, reading its venue file if needed.
+     *
+     * @param concertId The concert ID.
+     * @return The venue of the concert, or null if there is no such concert.
+     */
+    public synchronized Venue get(String concertId) {
+        Venue venue = venues.get(concertId);
+        if (venue == null) {
+            String venuePath = getPath(concertId);
+            if (venuePath == null) {
+                return null;
+            }
+            VenueTemplate template = getTemplate(venuePath);
+            SeatOccupancy occupancy = seatMap == null ? null : seatMap.get(concertId, template, bookings);
+            if (occupancy != null) {
+                venue = new Venue(concertId, template, occupancy);
+            } else {
+                venue = new Venue(concertId, template);
+                for (Booking b : bookings.findByConcert(concertId)) {
+                    venue.getOccupancy().add(b);
+                }
+            }
+            venues.put(concertId, venue);
+        }
+        return venue;
+    }
+
+    /**
+     * Gets the total number of seats for a concert without reading the layout
+     * when the venue file has an up to date capacity header.
+     *
+     * @param concertId The concert ID.
+     * @return The total number of seats.
+     */
+    public synchronized int getTotalSeats(String concertId) {
+        String venuePath = getPath(concertId);
+        if (venuePath == null) {
+            return 0;
+        }
+        VenueCapacity capacity = capacities.get(venuePath);
+        if (capacity == null) {
+            capacity = VenueCapacity.read(venuePath);
+            if (capacity == null) {
+                capacity = new VenueCapacity(getTemplate(venuePath));
+                capacity.write(venuePath);
+            }
+            capacities.put(venuePath, capacity);
+        }
+        return capacity.getTotalSeats();
+    }
+
+    /**
+     * Gets the parsed layout of a venue file, parsing it the first time.
+     *
+     * @param venuePath The path to the venue file.
+     * @return The parsed layout.
+     */
+    private VenueTemplate getTemplate(String venuePath) {
+        VenueTemplate template = templates.get(venuePath);
+        if (template == null) {
+            template = VenueTemplate.load(venuePath);
+            templates.put(venuePath, template);
+        }
+        return template;
+    }
+
+    /**
+     * Gets the venue file of a concert.
+     *
+     * @param concertId The concert ID.
+     * @return The path to the venue file, or null if there is no such concert.
+     */
+    private String getPath(String concertId) {
+        if (pathsByConcert == null) {
+            pathsByConcert = new HashMap<String, String>();
+            for (Concert concert : concerts) {
+                pathsByConcert.put(concert.getConcertId(),
+                        pathsByVenue.getOrDefault(concert.getVenue(), defaultPath));
+            }
+        }
+        return pathsByConcert.get(concertId);
+    }
+}
@@ -0,0 +1,265 @@
+package concert;
+
+import booking.ZoneType;
+import storage.LineError;
+import storage.LineErrors;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Class to represent the layout parsed from a venue file. A template is
+ * immutable, so every concert held at the same venue shares one template.
+ * Besides the lines of the layout, it keeps the number of rows of each zone
+ * and the section of each seat number.
+ *
+ * These two arrays are the typed seat grid of the venue. Every row of the file
+ * has the same left, middle and right blocks, as the columns are read from the
+ * first row, so a seat's zone comes from its row and its section from its
+ * seat number alone. The seat at zone z, row r and seat s exists if
+ * isSeat(z, r, s), and it is in section getSection(s).
+ */
+public final class VenueTemplate {
+    private static final char VIP = 'V';
+    private static final char SEATING = 'S';
+    private static final char STANDING = 'T';
+    private static final int BRACKET_LENGTH = 3;
+
+    private final String path;
+    private final List<String> layout;
+    private final int rowVip;
+    private final int rowSeating;
+    private final int rowStanding;
+    private final int numberOfLeftColumn;
+    private final int numberOfMiddleColumn;
+    private final int numberOfRightColumn;
+    private final int totalSeats;
+    private final int[] rowCounts; // indexed by zone
+    private final Section[] sections; // indexed by seat number, from 0
+
+    /**
+     * Constructor to initialize a VenueTemplate object.
+     *
+     * @param path        The path to the venue file.
+     * @param rowVip      The number of rows for VIP seating.
+     * @param rowSeating  The number of rows for Seating.
+     * @param rowStanding The number of rows for Standing.
+     * @param leftCol     The number of left columns.
+     * @param midCol      The number of middle columns.
+     * @param rightCol    The number of right columns.
+     * @param layout      The layout of the venue as a list of strings.
+     */
+    public VenueTemplate(String path, int rowVip, int rowSeating, int rowStanding, int leftCol, int midCol,
+            int rightCol, ArrayList<String> layout) {
+        this.path = path;
+        this.rowVip = rowVip;
+        this.rowSeating = rowSeating;
+        this.rowStanding = rowStanding;
+        this.numberOfLeftColumn = leftCol;
+        this.numberOfMiddleColumn = midCol;
+        this.numberOfRightColumn = rightCol;
+        this.totalSeats = (rowVip + rowSeating + rowStanding) * (leftCol + midCol + rightCol);
+        this.layout = Collections.unmodifiableList(new ArrayList<String>(layout));
+        this.rowCounts = new int[ZoneType.count()];
+        rowCounts[ZoneType.VIP.ordinal()] = rowVip;
+        rowCounts[ZoneType.SEATING.ordinal()] = rowSeating;
+        rowCounts[ZoneType.STANDING.ordinal()] = rowStanding;
+        this.sections = new Section[leftCol + midCol + rightCol + 1];
+        for (int seat = 0; seat < sections.length; seat++) {
+            if (seat <= leftCol) {
+                sections[seat] = Section.LEFT;
+            } else if (seat <= leftCol + midCol) {
+                sections[seat] = Section.MIDDLE;
+            } else {
+                sections[seat] = Section.RIGHT;
+            }
+        }
+    }
+
+    /**
+     * Opens and reads a venue file.
+     *
+     * @param venuePath The path to the venue file.
+     * @return The parsed layout of the venue.
+     */
+    public static VenueTemplate load(String venuePath) {
+        ArrayList<String> layout = new ArrayList<String>();
+        BufferedReader br = null;
+        int rowVip = 0;
+        int rowSeating = 0;
+        int rowStanding = 0;
+        int leftCol = 0;
+        int rightCol = 0;
+        int midCol = 0;
+        boolean checked = false;
+        int lineNumber = 0;
+        LineErrors errors = new LineErrors(true);
+
+        try {
+            br = new BufferedReader(new FileReader(venuePath));
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                layout.add(line);
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (!checked) {
+                    String[] parts = line.split(" ");
+                    leftCol = parts[1].length() / BRACKET_LENGTH; // equals 3 to reduce length of "[]"
+                    midCol = parts[2].length() / BRACKET_LENGTH;
+                    rightCol = parts[3].length() / BRACKET_LENGTH;
+                    checked = true;
+                }
+
+                if (line.charAt(0) == VIP) {
+                    rowVip++;
+                } else if (line.charAt(0) == SEATING) {
+                    rowSeating++;
+                } else if (line.charAt(0) == STANDING) {
+                    rowStanding++;
+                } else {
+                    errors.add(lineNumber, LineError.INVALID_ZONE_TYPE);
+                }
+            }
+            br.close();
+        } catch (FileNotFoundException e) {
+            System.err.println(venuePath + "(No such file or directory)");
+        } catch (IOException e) {
+            System.err.println(venuePath + "(No such file or directory)");
+        }
+        errors.printSummary();
+        return new VenueTemplate(venuePath, rowVip, rowSeating, rowStanding, leftCol, midCol, rightCol, layout);
+    }
+
+    /**
+     * Gets the path to the venue file.
+     *
+     * @return The path to the venue file.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the layout of the venue.
+     *
+     * @return The layout of the venue as a read-only list of strings.
+     */
+    public List<String> getLayout() {
+        return layout;
+    }
+
+    /**
+     * Gets the total number of seats.
+     *
+     * @return The total number of seats in the venue.
+     */
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    /**
+     * Gets the number of VIP rows.
+     *
+     * @return The number of VIP rows.
+     */
+    public int getRowVip() {
+        return rowVip;
+    }
+
+    /**
+     * Gets the number of seating rows.
+     *
+     * @return The number of seating rows.
+     */
+    public int getRowSeating() {
+        return rowSeating;
+    }
+
+    /**
+     * Gets the number of standing rows.
+     *
+     * @return The number of standing rows.
+     */
+    public int getRowStanding() {
+        return rowStanding;
+    }
+
+    /**
+     * Gets the number of left columns.
+     *
+     * @return The number of left columns.
+     */
+    public int getNumberOfLeftColumn() {
+        return numberOfLeftColumn;
+    }
+
+    /**
+     * Gets the number of middle columns.
+     *
+     * @return The number of middle columns.
+     */
+    public int getNumberOfMiddleColumn() {
+        return numberOfMiddleColumn;
+    }
+
+    /**
+     * Gets the number of right columns.
+     *
+     * @return The number of right columns.
+     */
+    public int getNumberOfRightColumn() {
+        return numberOfRightColumn;
+    }
+
+    /**
+     * Gets the number of rows of a zone.
+     *
+     * @param zone The zone.
+     * @return The number of rows of the zone.
+     */
+    public int getRowCount(ZoneType zone) {
+        return rowCounts[zone.ordinal()];
+    }
+
+    /**
+     * Gets the number of seats in each row.
+     *
+     * @return The number of seats in each row.
+     */
+    public int getSeatCount() {
+        return sections.length - 1;
+    }
+
+    /**
+     * Gets the section of a seat number. A number before the first seat is in
+     * the left section and a number after the last seat is in the right
+     * section.
+     *
+     * @param seat The seat number.
+     * @return The section of the seat.
+     */
+    public Section getSection(int seat) {
+        if (seat < 0) {
+            return Section.LEFT;
+        }
+        return seat < sections.length ? sections[seat] : Section.RIGHT;
+    }
+
+    /**
+     * Checks if a seat exists in the venue.
+     *
+     * @param zone The zone.
+     * @param row  The row number.
+     * @param seat The seat number.
+     * @return True if the seat exists.
+     */
+    public boolean isSeat(ZoneType zone, int row, int seat) {
+        return row >= 1 && row <= rowCounts[zone.ordinal()] && seat >= 1 && seat < sections.length;
+    }
+}
@@ -0,0 +1,241 @@
+package storage;
+
+import booking.Booking;
+import booking.BookingRepository;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+/**
+ * Append-only journal that stores new and changed bookings next to the booking
+ * file, so that a customer leaving the program does not rewrite every booking.
+ * Each entry is a line in the same format as the booking file. The booking file
+ * itself acts as the snapshot, and compaction folds the journal back into it.
+ * Appends and compactions are synced to the disk before they are counted as
+ * saved.
+ */
+public class BookingJournal {
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
+    private String bookingPath;
+    private String journalPath;
+    private int compactionThreshold;
+    private int entries = -1;
+    private FileOutputStream appendFile;
+    private BufferedWriter appendWriter;
+
+    /**
+     * Constructor to initialize a BookingJournal object.
+     *
+     * @param bookingPath         The path to the booking file.
+     * @param compactionThreshold The number of journal entries after which the
+     *                            journal is folded into the booking file.
+     */
+    public BookingJournal(String bookingPath, int compactionThreshold) {
+        this.bookingPath = bookingPath;
+        this.journalPath = bookingPath + JOURNAL_SUFFIX;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Gets the path to the journal file.
+     *
+     * @return The path to the journal file.
+     */
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * Checks if the journal file exists.
+     *
+     * @return True if there are journal entries to replay.
+     */
+    public boolean exists() {
+        return new File(journalPath).exists();
+    }
+
+    /**
+     * Appends every booking that has unsaved changes to the journal.
+     *
+     * @param bookings A list of bookings.
+     * @return The number of entries appended.
+     */
+    public int append(BookingRepository bookings) {
+        int appended = 0;
+        FileOutputStream file = null;
+        BufferedWriter bw = null;
+        ArrayList<Booking> unsaved = bookings.findUnsaved();
+        try {
+            for (Booking b : unsaved) {
+                if (bw == null) {
+                    file = new FileOutputStream(journalPath, true);
+                    bw = new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8));
+                }
+                bw.write(b.toCsvLine());
+                bw.newLine();
+                appended++;
+            }
+            if (bw != null) {
+                bw.flush();
+                file.getChannel().force(false);
+                bw.close();
+                for (Booking b : unsaved) {
+                    b.markPersisted();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(journalPath + "(No such file or directory)");
+        }
+        if (entries >= 0) {
+            entries += appended;
+        }
+        return appended;
+    }
+
+    /**
+     * Writes a new booking to the end of the journal. The journal stays open,
+     * and the booking is only saved once the journal is committed, so it is
+     * left unsaved here.
+     *
+     * @param booking The new booking.
+     * @return True if the booking was written.
+     */
+    public boolean write(Booking booking) {
+        try {
+            if (appendWriter == null) {
+                appendFile = new FileOutputStream(journalPath, true);
+                appendWriter = new BufferedWriter(new OutputStreamWriter(appendFile, StandardCharsets.UTF_8));
+            }
+            appendWriter.write(booking.toCsvLine());
+            appendWriter.newLine();
+        } catch (IOException e) {
+            System.err.println(journalPath + "(No such file or directory)");
+            return false;
+        }
+        if (entries >= 0) {
+            entries++;
+        }
+        return true;
+    }
+
+    /**
+     * Hands the bookings written since the last commit to the system, and
+     * syncs them to the disk if asked to.
+     *
+     * @param sync True to wait until the bookings are on the disk.
+     * @return True if the bookings were committed.
+     */
+    public boolean commit(boolean sync) {
+        if (appendWriter == null) {
+            return false;
+        }
+        try {
+            appendWriter.flush();
+            if (sync) {
+                appendFile.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            System.err.println(journalPath + "(No such file or directory)");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the journal has grown past the compaction threshold.
+     *
+     * @return True if the journal should be folded into the booking file.
+     */
+    public boolean needsCompaction() {
+        return countEntries() >= compactionThreshold;
+    }
+
+    /**
+     * Folds the journal into the booking file. The full booking list is written
+     * to a temporary file that replaces the booking file in one step, and the
+     * journal is removed afterwards. A crash in between leaves a journal whose
+     * entries are already in the booking file, which replays to the same state.
+     *
+     * @param bookings A list of all bookings.
+     */
+    public void compact(BookingRepository bookings) {
+        Path target = Paths.get(bookingPath);
+        Path temp = Paths.get(bookingPath + TEMP_SUFFIX);
+        ArrayList<Booking> written = new ArrayList<Booking>();
+        try {
+            FileOutputStream file = new FileOutputStream(temp.toFile());
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8));
+            for (Booking b : bookings) {
+                bw.write(b.toCsvLine());
+                bw.newLine();
+                written.add(b);
+            }
+            bw.flush();
+            file.getChannel().force(false);
+            bw.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Booking b : written) {
+                b.markPersisted();
+            }
+            clear();
+        } catch (IOException e) {
+            System.err.println(bookingPath + "(No such file or directory)");
+        }
+    }
+
+    /**
+     * Removes the journal file once its entries are part of the booking file.
+     */
+    public void clear() {
+        if (appendWriter != null) {
+            // the bookings still being written are in the booking file already
+            try {
+                appendWriter.close();
+            } catch (IOException e) {
+                System.err.println(journalPath + "(No such file or directory)");
+            }
+            appendWriter = null;
+            appendFile = null;
+        }
+        new File(journalPath).delete();
+        entries = 0;
+    }
+
+    /**
+     * Counts the entries in the journal.
+     *
+     * @return The number of entries in the journal.
+     */
+    private int countEntries() {
+        if (entries >= 0) {
+            return entries;
+        }
+        entries = 0;
+        if (!exists()) {
+            return entries;
+        }
+        try {
+            BufferedReader br = new BufferedReader(new FileReader(journalPath));
+            while (br.readLine() != null) {
+                entries++;
+            }
+            br.close();
+        } catch (IOException e) {
+            System.err.println(journalPath + "(No such file or directory)");
+        }
+        return entries;
+    }
+}
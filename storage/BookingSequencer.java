@@ -0,0 +1,295 @@
+package storage;
+
+import booking.Booking;
+import booking.BookingRepository;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Single writer that makes every booking of a server, one after another. The
+ * sessions put booking requests on a ring buffer and wait for their results.
+ * The sequencer thread runs each request, which claims the seats and creates
+ * the booking, adds the booking to the loaded bookings and writes it to the
+ * journal. Bookings are made in the order the requests were put.
+ *
+ * When a request is answered depends on the commit policy. With SYNC each
+ * booking is synced to the disk on its own. With GROUP the bookings are synced
+ * together once the group size is reached or the oldest request has waited
+ * the group time, and requests that come in meanwhile join the group. With
+ * ASYNC requests are answered once their bookings are written, and the system
+ * syncs them later. The journal is folded into the booking file only while
+ * no request is waiting, so a compaction never holds up an answer.
+ */
+public class BookingSequencer {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_GROUP_MILLIS = 2;
+    public static final int DEFAULT_GROUP_SIZE = 64;
+    private static final int MAX_BATCH = 256;
+    private static final int YIELD_TRIES = 16;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RingBuffer<Request> requests;
+    private final BookingRepository bookings;
+    private final BookingJournal journal;
+    private final CommitPolicy policy;
+    private final long groupNanos;
+    private final int groupSize;
+    private final CommitMetrics metrics = new CommitMetrics();
+    private volatile Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    // only used by the sequencer thread
+    private final ArrayList<Request> waiting = new ArrayList<Request>();
+    private long groupStart;
+    private int unsynced;
+    private boolean compactionDue;
+
+    /**
+     * Request of a session, with the future that gets its result.
+     */
+    private static class Request {
+        private final Supplier<Booking> task;
+        private final boolean commitFirst;
+        private final CompletableFuture<Booking> result = new CompletableFuture<Booking>();
+        private final long submitted = System.nanoTime();
+        private Booking booking;
+        private boolean written;
+
+        private Request(Supplier<Booking> task, boolean commitFirst) {
+            this.task = task;
+            this.commitFirst = commitFirst;
+        }
+    }
+
+    /**
+     * Constructor to initialize a BookingSequencer object. Its thread runs once
+     * start is called.
+     *
+     * @param bookings    A list of bookings.
+     * @param journal     The journal of the booking file.
+     * @param capacity    The number of requests that can wait at once.
+     * @param policy      When bookings are synced and answered.
+     * @param groupMillis The longest a booking waits for its group, with the
+     *                    GROUP policy.
+     * @param groupSize   The number of bookings that are synced together at
+     *                    most, with the GROUP policy.
+     */
+    public BookingSequencer(BookingRepository bookings, BookingJournal journal, int capacity, CommitPolicy policy,
+            int groupMillis, int groupSize) {
+        this.bookings = bookings;
+        this.journal = journal;
+        this.policy = policy;
+        this.groupNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(groupMillis, 0));
+        this.groupSize = Math.max(groupSize, 1);
+        this.requests = new RingBuffer<Request>(capacity);
+    }
+
+    /**
+     * Starts the sequencer thread, which takes the requests put before and
+     * after it starts.
+     */
+    public void start() {
+        thread = new Thread(this::run, "booking-sequencer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Puts a booking request on the queue, waiting while the queue is full.
+     * Once the sequencer is closed, the future fails with an
+     * IllegalStateException instead.
+     *
+     * @param task Claims the seats and creates the booking on the sequencer
+     *             thread, returning null if the seats cannot be booked.
+     * @return The future that gets the booking once it is saved, which is null
+     *         if nothing was booked.
+     */
+    public CompletableFuture<Booking> submit(Supplier<Booking> task) {
+        return submit(new Request(task, false));
+    }
+
+    /**
+     * Puts a request on the queue, waiting while the queue is full.
+     *
+     * @param request The request.
+     * @return The future that gets the result of the request.
+     */
+    private CompletableFuture<Booking> submit(Request request) {
+        if (!running) {
+            request.result.completeExceptionally(closed());
+            return request.result;
+        }
+        for (int tries = 0; !requests.offer(request); tries++) {
+            if (stopped) {
+                request.result.completeExceptionally(closed());
+                return request.result;
+            }
+            // the queue is full, so give the sequencer thread time to take requests
+            LockSupport.unpark(thread);
+            if (tries < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, Math.min(1000L << Math.min(tries - YIELD_TRIES, 20), MAX_BACKOFF_NANOS));
+            }
+        }
+        LockSupport.unpark(thread);
+        if (stopped) {
+            // the request may have been put after the sequencer took its last one
+            request.result.completeExceptionally(closed());
+        }
+        return request.result;
+    }
+
+    /**
+     * Runs a task on the sequencer thread between bookings, such as saving the
+     * booking file. The bookings made before the task are committed first, so
+     * the task sees them as saved.
+     *
+     * @param task The task.
+     * @return The future that completes when the task has run.
+     */
+    public CompletableFuture<Booking> execute(Runnable task) {
+        return submit(new Request(() -> {
+            task.run();
+            return null;
+        }, true));
+    }
+
+    /**
+     * Stops the sequencer once the requests already queued are done.
+     */
+    public void close() {
+        running = false;
+        if (thread == null) {
+            stop();
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the commit metrics of the sequencer.
+     *
+     * @return The metrics.
+     */
+    public CommitMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Takes requests off the queue in batches until the sequencer is closed,
+     * committing the bookings as the commit policy says.
+     */
+    private void run() {
+        while (true) {
+            Request request = requests.poll();
+            if (request == null) {
+                if (!waiting.isEmpty()) {
+                    long wait = groupStart + groupNanos - System.nanoTime();
+                    if (wait <= 0 || !running) {
+                        commit();
+                    } else {
+                        LockSupport.parkNanos(this, wait);
+                    }
+                    continue;
+                }
+                if (compactionDue) {
+                    journal.compact(bookings);
+                    compactionDue = false;
+                    continue;
+                }
+                if (!running) {
+                    stop();
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            for (int taken = 1; request != null; taken++) {
+                if (request.commitFirst && !waiting.isEmpty()) {
+                    commit();
+                }
+                if (waiting.isEmpty()) {
+                    groupStart = System.nanoTime();
+                }
+                waiting.add(request);
+                try {
+                    request.booking = request.task.get();
+                    if (request.booking != null) {
+                        bookings.add(request.booking);
+                        request.written = journal.write(request.booking);
+                        unsynced++;
+                    }
+                } catch (RuntimeException e) {
+                    request.result.completeExceptionally(e);
+                }
+                if (policy == CommitPolicy.SYNC) {
+                    commit();
+                }
+                request = taken < MAX_BATCH ? requests.poll() : null;
+            }
+            if (policy == CommitPolicy.ASYNC || unsynced >= groupSize
+                    || System.nanoTime() - groupStart >= groupNanos) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Marks the sequencer as stopped and fails the requests that were put
+     * after it took its last request.
+     */
+    private void stop() {
+        stopped = true;
+        for (Request late = requests.poll(); late != null; late = requests.poll()) {
+            late.result.completeExceptionally(closed());
+        }
+    }
+
+    /**
+     * Creates the exception that fails a request put after the sequencer was
+     * closed.
+     *
+     * @return The exception.
+     */
+    private static IllegalStateException closed() {
+        return new IllegalStateException("The booking sequencer is closed.");
+    }
+
+    /**
+     * Commits the bookings written so far and answers the waiting requests.
+     * The bookings are marked as saved only once the commit succeeds, so that
+     * a failed commit leaves them for the next save of the booking file. Only
+     * the requests that made a booking count towards the latency, as the
+     * others did not wait for the commit.
+     */
+    private void commit() {
+        boolean committed = false;
+        if (unsynced > 0) {
+            committed = journal.commit(policy != CommitPolicy.ASYNC);
+            metrics.recordCommit(unsynced);
+            unsynced = 0;
+            compactionDue = journal.needsCompaction();
+        }
+        long now = System.nanoTime();
+        for (Request done : waiting) {
+            if (done.booking != null) {
+                if (committed && done.written) {
+                    done.booking.markPersisted();
+                }
+                metrics.recordLatency(now - done.submitted);
+            }
+            done.result.complete(done.booking);
+        }
+        waiting.clear();
+    }
+}
@@ -0,0 +1,710 @@
+package storage;
+
+import booking.Booking;
+import booking.BookingRepository;
+import booking.BookingSource;
+import booking.TicketDetail;
+import booking.TicketSource;
+import booking.ZoneType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of the booking file that can be memory-mapped on startup
+ * instead of parsing the text again. The booking file stays the format that is
+ * read and written by people and other tools, and a snapshot is only used while
+ * the booking file and its journal have not changed since it was written.
+ *
+ * The snapshot has a fixed header followed by fixed-width columns: a table
+ * with the ID, seats sold, highest booking ID and bookings of each concert,
+ * then the booking numbers grouped by concert, then booking ID, customer ID,
+ * concert ID, ticket count, customer name index and first ticket for each
+ * booking, then ticket ID, zone, row, seat and price in cents for each ticket,
+ * and finally a dictionary of distinct customer names. Opening a snapshot only
+ * reads the header, so the concert list is shown without creating a booking,
+ * and the bookings of a concert are created the first time it is searched.
+ *
+ * The columns are checked in blocks. The header holds a checksum of itself
+ * and of the table of block checksums at the end of the file, and a block is
+ * checked the first time a value in it is read. If a block turns out to be
+ * corrupted, the bookings are read from the booking file instead.
+ */
+public class BookingSnapshot implements TicketSource, BookingSource {
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x544D5342; // "TMSB"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 72;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int CONCERT_COLUMNS = 5;
+    private static final int BOOKING_COLUMNS = 6;
+    private static final int TICKET_ROW_SIZE = 4 + 1 + 4 + 4 + 8;
+    private static final long NOT_AN_ID = Long.MIN_VALUE;
+
+    // header fields
+    private static final int FINGERPRINT_OFFSET = 8;
+    private static final int BOOKING_COUNT_OFFSET = 40;
+    private static final int TICKET_COUNT_OFFSET = 44;
+    private static final int NAME_COUNT_OFFSET = 48;
+    private static final int CONCERT_COUNT_OFFSET = 52;
+    private static final int NAME_BYTES_OFFSET = 56;
+    private static final int CHECKSUM_OFFSET = 64;
+
+    // concert table fields
+    private static final int CONCERT_ID = 0;
+    private static final int SEATS_SOLD = 4;
+    private static final int LAST_BOOKING_ID = 8;
+    private static final int FIRST_ENTRY = 12;
+    private static final int ENTRY_COUNT = 16;
+
+    private final String bookingPath;
+    private final ByteBuffer data;
+    private final int bookingCount;
+    private final int ticketCount;
+    private final int nameCount;
+    private final int concertCount;
+    private final Supplier<List<Booking>> fallback;
+    private boolean[] verified; // indexed by block, created when first needed
+    private String[] names; // created when first needed
+    private List<Booking> csvBookings; // read from the booking file once a block is corrupted
+
+    // column offsets from the start of the file
+    private final int concertColumn;
+    private final int entryColumn;
+    private final int bookingIdColumn;
+    private final int customerIdColumn;
+    private final int concertIdColumn;
+    private final int ticketCountColumn;
+    private final int nameColumn;
+    private final int firstTicketColumn;
+    private final int ticketIdColumn;
+    private final int zoneColumn;
+    private final int rowColumn;
+    private final int seatColumn;
+    private final int priceColumn;
+    private final int nameOffsetColumn;
+    private final int nameDataStart;
+    private final int blockColumn;
+    private final int blockCount;
+
+    /**
+     * Constructor to initialize a BookingSnapshot object from mapped data
+     * whose size matches its header.
+     *
+     * @param bookingPath The path to the booking file.
+     * @param data        The mapped snapshot file.
+     * @param fallback    Reads the bookings from the booking file if the
+     *                    snapshot is corrupted.
+     */
+    private BookingSnapshot(String bookingPath, ByteBuffer data, Supplier<List<Booking>> fallback) {
+        this.bookingPath = bookingPath;
+        this.data = data;
+        this.fallback = fallback;
+        this.bookingCount = data.getInt(BOOKING_COUNT_OFFSET);
+        this.ticketCount = data.getInt(TICKET_COUNT_OFFSET);
+        this.nameCount = data.getInt(NAME_COUNT_OFFSET);
+        this.concertCount = data.getInt(CONCERT_COUNT_OFFSET);
+
+        concertColumn = HEADER_SIZE;
+        entryColumn = concertColumn + concertCount * CONCERT_COLUMNS * 4;
+        bookingIdColumn = entryColumn + bookingCount * 4;
+        customerIdColumn = bookingIdColumn + bookingCount * 4;
+        concertIdColumn = customerIdColumn + bookingCount * 4;
+        ticketCountColumn = concertIdColumn + bookingCount * 4;
+        nameColumn = ticketCountColumn + bookingCount * 4;
+        firstTicketColumn = nameColumn + bookingCount * 4;
+        priceColumn = firstTicketColumn + bookingCount * 4;
+        ticketIdColumn = priceColumn + ticketCount * 8;
+        rowColumn = ticketIdColumn + ticketCount * 4;
+        seatColumn = rowColumn + ticketCount * 4;
+        zoneColumn = seatColumn + ticketCount * 4;
+        nameOffsetColumn = zoneColumn + ticketCount;
+        nameDataStart = nameOffsetColumn + (nameCount + 1) * 4;
+        blockColumn = nameDataStart + data.getInt(NAME_BYTES_OFFSET);
+        blockCount = (blockColumn - HEADER_SIZE + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Gets the size of a snapshot from the counts in its header.
+     *
+     * @param bookings The number of bookings.
+     * @param tickets  The number of tickets.
+     * @param names    The number of distinct customer names.
+     * @param concerts The number of concerts.
+     * @param nameSize The number of bytes of the customer names.
+     * @return The size of the snapshot in bytes, or -1 if a count is negative.
+     */
+    private static long getSize(long bookings, long tickets, long names, long concerts, long nameSize) {
+        if (bookings < 0 || tickets < 0 || names < 0 || concerts < 0 || nameSize < 0) {
+            return -1;
+        }
+        long dataEnd = HEADER_SIZE + concerts * CONCERT_COLUMNS * 4 + bookings * 4 + bookings * BOOKING_COLUMNS * 4
+                + tickets * TICKET_ROW_SIZE + (names + 1) * 4 + nameSize;
+        long blocks = (dataEnd - HEADER_SIZE + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return dataEnd + blocks * 8;
+    }
+
+    /**
+     * Gets the path of the snapshot that belongs to a booking file.
+     *
+     * @param bookingPath The path to the booking file.
+     * @return The path to the snapshot file.
+     */
+    public static String pathFor(String bookingPath) {
+        return bookingPath + SNAPSHOT_SUFFIX;
+    }
+
+    /**
+     * Checks if a booking file has a snapshot that is up to date.
+     *
+     * @param bookingPath The path to the booking file.
+     * @return True if the snapshot can be used instead of the booking file.
+     */
+    public static boolean isCurrent(String bookingPath) {
+        return open(bookingPath, null) != null;
+    }
+
+    /**
+     * Opens the snapshot of a booking file if it is still up to date. Only the
+     * header and the table of block checksums are read.
+     *
+     * @param bookingPath The path to the booking file.
+     * @param fallback    Reads the bookings from the booking file, in case a
+     *                    block of the snapshot turns out to be corrupted.
+     * @return The snapshot, or null if there is no usable snapshot.
+     */
+    public static BookingSnapshot open(String bookingPath, Supplier<List<Booking>> fallback) {
+        File file = new File(pathFor(bookingPath));
+        if (!file.exists() || file.length() < HEADER_SIZE || file.length() > Integer.MAX_VALUE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                return null;
+            }
+            long[] fingerprint = fingerprint(bookingPath);
+            for (int i = 0; i < fingerprint.length; i++) {
+                if (data.getLong(FINGERPRINT_OFFSET + i * 8) != fingerprint[i]) {
+                    return null;
+                }
+            }
+            long size = getSize(data.getInt(BOOKING_COUNT_OFFSET), data.getInt(TICKET_COUNT_OFFSET),
+                    data.getInt(NAME_COUNT_OFFSET), data.getInt(CONCERT_COUNT_OFFSET),
+                    data.getInt(NAME_BYTES_OFFSET));
+            BookingSnapshot snapshot = size == channel.size() ? new BookingSnapshot(bookingPath, data, fallback)
+                    : null;
+            if (snapshot == null || data.getLong(CHECKSUM_OFFSET) != snapshot.getHeaderChecksum()) {
+                System.err.println(file.getPath() + " is corrupted. Reading " + bookingPath + " instead.");
+                return null;
+            }
+            return snapshot;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the number of seats sold for a concert from the concert table.
+     *
+     * @param concertId The ID of the concert.
+     * @return The total number of tickets of the concert.
+     */
+    @Override
+    public synchronized int getSeatsSold(String concertId) {
+        if (csvBookings == null) {
+            int row = findConcert(concertId);
+            if (row >= -1) {
+                return row < 0 ? 0 : data.getInt(concertColumn + row * CONCERT_COLUMNS * 4 + SEATS_SOLD);
+            }
+            readBookingFile();
+        }
+        int sold = 0;
+        for (Booking b : csvBookings) {
+            if (b.getConcertId().equals(concertId)) {
+                sold += b.getTotalTickets();
+            }
+        }
+        return sold;
+    }
+
+    /**
+     * Gets the highest booking ID of a concert from the concert table.
+     *
+     * @param concertId The ID of the concert.
+     * @return The highest booking ID, or 0 if the concert has no bookings.
+     */
+    @Override
+    public synchronized int getLastBookingId(String concertId) {
+        if (csvBookings == null) {
+            int row = findConcert(concertId);
+            if (row >= -1) {
+                return row < 0 ? 0 : data.getInt(concertColumn + row * CONCERT_COLUMNS * 4 + LAST_BOOKING_ID);
+            }
+            readBookingFile();
+        }
+        int lastId = 0;
+        for (Booking b : csvBookings) {
+            long id = toId(b.getBookingId());
+            if (b.getConcertId().equals(concertId) && id != NOT_AN_ID) {
+                lastId = Math.max(lastId, (int) id);
+            }
+        }
+        return lastId;
+    }
+
+    /**
+     * Creates the bookings of a concert. Ticket details stay in the mapped
+     * file until a booking's tickets are first used.
+     *
+     * @param concertId The ID of the concert.
+     * @return The bookings of the concert, in file order.
+     */
+    @Override
+    public synchronized List<Booking> loadConcert(String concertId) {
+        ArrayList<Booking> bookings = new ArrayList<Booking>();
+        if (csvBookings == null) {
+            int row = findConcert(concertId);
+            if (row == -1) {
+                return bookings;
+            }
+            int rowStart = concertColumn + row * CONCERT_COLUMNS * 4;
+            int first = row < 0 ? 0 : data.getInt(rowStart + FIRST_ENTRY);
+            int count = row < 0 ? 0 : data.getInt(rowStart + ENTRY_COUNT);
+            boolean valid = row >= 0 && first >= 0 && count >= 0 && first + count <= bookingCount
+                    && verify(entryColumn + first * 4, count * 4);
+            for (int e = first; valid && e < first + count; e++) {
+                int index = data.getInt(entryColumn + e * 4);
+                valid = index >= 0 && index < bookingCount && verifyBooking(index);
+                if (valid) {
+                    bookings.add(createBooking(index));
+                }
+            }
+            if (valid) {
+                return bookings;
+            }
+            bookings.clear();
+            readBookingFile();
+        }
+        for (Booking b : csvBookings) {
+            if (b.getConcertId().equals(concertId)) {
+                bookings.add(b);
+            }
+        }
+        return bookings;
+    }
+
+    /**
+     * Creates every booking stored in the snapshot.
+     *
+     * @return A list of bookings, in file order.
+     */
+    @Override
+    public synchronized List<Booking> loadAll() {
+        if (csvBookings == null) {
+            ArrayList<Booking> bookings = new ArrayList<Booking>(bookingCount);
+            for (int i = 0; i < bookingCount; i++) {
+                if (!verifyBooking(i)) {
+                    readBookingFile();
+                    return csvBookings;
+                }
+                bookings.add(createBooking(i));
+            }
+            return bookings;
+        }
+        return csvBookings;
+    }
+
+    /**
+     * Adds the ticket details of a booking from the ticket columns, which were
+     * checked when the booking was created.
+     *
+     * @param booking The booking to add the ticket details to.
+     * @param index   The position of the booking in the snapshot.
+     */
+    @Override
+    public void loadTickets(Booking booking, int index) {
+        int first = data.getInt(firstTicketColumn + index * 4);
+        int count = data.getInt(ticketCountColumn + index * 4);
+        for (int t = first; t < first + count; t++) {
+            booking.addTicket(data.getInt(ticketIdColumn + t * 4), data.get(zoneColumn + t),
+                    data.getInt(rowColumn + t * 4), data.getInt(seatColumn + t * 4),
+                    data.getLong(priceColumn + t * 8));
+        }
+    }
+
+    /**
+     * Creates a booking from the booking columns.
+     *
+     * @param index The position of the booking in the snapshot.
+     * @return The booking.
+     */
+    private Booking createBooking(int index) {
+        Booking booking = new Booking(Integer.toString(data.getInt(bookingIdColumn + index * 4)),
+                Integer.toString(data.getInt(customerIdColumn + index * 4)),
+                getName(data.getInt(nameColumn + index * 4)),
+                Integer.toString(data.getInt(concertIdColumn + index * 4)),
+                data.getInt(ticketCountColumn + index * 4), this, index);
+        booking.markPersisted();
+        return booking;
+    }
+
+    /**
+     * Finds the row of a concert in the concert table, which is sorted by
+     * concert ID.
+     *
+     * @param concertId The ID of the concert.
+     * @return The row of the concert, -1 if the concert has no bookings, or
+     *         -2 if the table is corrupted.
+     */
+    private int findConcert(String concertId) {
+        if (!verify(concertColumn, concertCount * CONCERT_COLUMNS * 4)) {
+            return -2;
+        }
+        long id = toId(concertId);
+        if (id == NOT_AN_ID) {
+            return -1;
+        }
+        int low = 0;
+        int high = concertCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = data.getInt(concertColumn + mid * CONCERT_COLUMNS * 4 + CONCERT_ID);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the blocks holding a booking, its tickets and its customer name.
+     *
+     * @param index The position of the booking in the snapshot.
+     * @return True if the blocks are intact.
+     */
+    private boolean verifyBooking(int index) {
+        for (int column = 0; column < BOOKING_COLUMNS; column++) {
+            if (!verify(bookingIdColumn + (column * bookingCount + index) * 4, 4)) {
+                return false;
+            }
+        }
+        int first = data.getInt(firstTicketColumn + index * 4);
+        int count = data.getInt(ticketCountColumn + index * 4);
+        int name = data.getInt(nameColumn + index * 4);
+        if (first < 0 || count < 0 || first + count > ticketCount || name < 0 || name >= nameCount
+                || !verify(nameOffsetColumn + name * 4, 8)) {
+            return false;
+        }
+        int nameStart = data.getInt(nameOffsetColumn + name * 4);
+        int nameEnd = data.getInt(nameOffsetColumn + (name + 1) * 4);
+        if (nameStart < 0 || nameEnd < nameStart || nameDataStart + nameEnd > blockColumn) {
+            return false;
+        }
+        return verify(priceColumn + first * 8, count * 8) && verify(ticketIdColumn + first * 4, count * 4)
+                && verify(rowColumn + first * 4, count * 4) && verify(seatColumn + first * 4, count * 4)
+                && verify(zoneColumn + first, count) && verify(nameDataStart + nameStart, nameEnd - nameStart);
+    }
+
+    /**
+     * Checks the blocks of a range of the snapshot that have not been checked
+     * yet against their checksums.
+     *
+     * @param offset The offset of the range.
+     * @param length The length of the range in bytes.
+     * @return True if the blocks are intact.
+     */
+    private boolean verify(int offset, int length) {
+        if (length <= 0) {
+            return true;
+        }
+        if (verified == null) {
+            verified = new boolean[blockCount];
+        }
+        for (int block = (offset - HEADER_SIZE) / BLOCK_SIZE; block <= (offset + length - 1 - HEADER_SIZE)
+                / BLOCK_SIZE; block++) {
+            if (!verified[block]) {
+                if (getBlockChecksum(block) != data.getLong(blockColumn + block * 8)) {
+                    return false;
+                }
+                verified[block] = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the bookings from the booking file once a block of the snapshot is
+     * found to be corrupted.
+     */
+    private void readBookingFile() {
+        System.err.println(pathFor(bookingPath) + " is corrupted. Reading " + bookingPath + " instead.");
+        csvBookings = fallback.get();
+    }
+
+    /**
+     * Gets a customer name from the dictionary.
+     *
+     * @param index The index of the name.
+     * @return The customer name.
+     */
+    private String getName(int index) {
+        if (names == null) {
+            names = new String[nameCount];
+        }
+        if (names[index] == null) {
+            int start = data.getInt(nameOffsetColumn + index * 4);
+            int end = data.getInt(nameOffsetColumn + (index + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            data.get(nameDataStart + start, bytes);
+            names[index] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return names[index];
+    }
+
+    /**
+     * Computes the checksum of a block of the columns.
+     *
+     * @param block The index of the block.
+     * @return The checksum.
+     */
+    private long getBlockChecksum(int block) {
+        int start = HEADER_SIZE + block * BLOCK_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(data.slice(start, Math.min(BLOCK_SIZE, blockColumn - start)));
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the checksum of the header and the table of block checksums.
+     *
+     * @return The checksum.
+     */
+    private long getHeaderChecksum() {
+        CRC32C crc = new CRC32C();
+        crc.update(data.slice(0, CHECKSUM_OFFSET));
+        crc.update(data.slice(blockColumn, blockCount * 8));
+        return crc.getValue();
+    }
+
+    /**
+     * Writes a snapshot of the bookings. The booking file and journal must
+     * already contain the same bookings, as the snapshot records their size and
+     * modification time. No snapshot is written if a booking has a value that
+     * does not fit the fixed-width columns, such as an ID that is not a number.
+     *
+     * @param bookings    A list of all bookings.
+     * @param bookingPath The path to the booking file.
+     * @return True if the snapshot was written.
+     */
+    public static boolean write(BookingRepository bookings, String bookingPath) {
+        Path target = Paths.get(pathFor(bookingPath));
+        int count = bookings.size();
+        int[] bookingIds = new int[count];
+        int[] customerIds = new int[count];
+        int[] concertIds = new int[count];
+        int tickets = 0;
+        HashMap<String, Integer> nameIndexes = new HashMap<String, Integer>();
+        ArrayList<byte[]> names = new ArrayList<byte[]>();
+        int nameBytes = 0;
+        // bookings of each concert by concert ID: seats sold, highest booking ID, then the bookings
+        TreeMap<Integer, ArrayList<Integer>> concerts = new TreeMap<Integer, ArrayList<Integer>>();
+        for (int i = 0; i < count; i++) {
+            Booking b = bookings.get(i);
+            int[] ids = toInts(b.getBookingId(), b.getCustomerId(), b.getConcertId());
+            if (ids == null || b.getTickets().size() != b.getTotalTickets()) {
+                target.toFile().delete();
+                return false;
+            }
+            bookingIds[i] = ids[0];
+            customerIds[i] = ids[1];
+            concertIds[i] = ids[2];
+            ArrayList<Integer> concert = concerts.computeIfAbsent(ids[2], k -> new ArrayList<Integer>(
+                    List.of(0, 0)));
+            concert.set(0, concert.get(0) + b.getTotalTickets());
+            concert.set(1, Math.max(concert.get(1), ids[0]));
+            concert.add(i);
+            tickets += b.getTotalTickets();
+            if (!nameIndexes.containsKey(b.getCustomerName())) {
+                nameIndexes.put(b.getCustomerName(), names.size());
+                byte[] name = b.getCustomerName().getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                nameBytes += name.length;
+            }
+        }
+        long size = getSize(count, tickets, names.size(), concerts.size(), nameBytes);
+        if (size > Integer.MAX_VALUE) {
+            target.toFile().delete();
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        BookingSnapshot layout = new BookingSnapshot(bookingPath, buffer.putInt(BOOKING_COUNT_OFFSET, count)
+                .putInt(TICKET_COUNT_OFFSET, tickets).putInt(NAME_COUNT_OFFSET, names.size())
+                .putInt(CONCERT_COUNT_OFFSET, concerts.size()).putInt(NAME_BYTES_OFFSET, nameBytes), null);
+        int row = 0;
+        int entry = 0;
+        for (HashMap.Entry<Integer, ArrayList<Integer>> concert : concerts.entrySet()) {
+            int rowStart = layout.concertColumn + row * CONCERT_COLUMNS * 4;
+            ArrayList<Integer> values = concert.getValue();
+            buffer.putInt(rowStart + CONCERT_ID, concert.getKey());
+            buffer.putInt(rowStart + SEATS_SOLD, values.get(0));
+            buffer.putInt(rowStart + LAST_BOOKING_ID, values.get(1));
+            buffer.putInt(rowStart + FIRST_ENTRY, entry);
+            buffer.putInt(rowStart + ENTRY_COUNT, values.size() - 2);
+            for (int i = 2; i < values.size(); i++) {
+                buffer.putInt(layout.entryColumn + entry * 4, values.get(i));
+                entry++;
+            }
+            row++;
+        }
+        int ticket = 0;
+        for (int i = 0; i < count; i++) {
+            Booking b = bookings.get(i);
+            buffer.putInt(layout.bookingIdColumn + i * 4, bookingIds[i]);
+            buffer.putInt(layout.customerIdColumn + i * 4, customerIds[i]);
+            buffer.putInt(layout.concertIdColumn + i * 4, concertIds[i]);
+            buffer.putInt(layout.ticketCountColumn + i * 4, b.getTotalTickets());
+            buffer.putInt(layout.nameColumn + i * 4, nameIndexes.get(b.getCustomerName()));
+            buffer.putInt(layout.firstTicketColumn + i * 4, ticket);
+            for (TicketDetail td : b.getTicketDetails()) {
+                int[] seat = toInts(td.getTicketId(), td.getRowNumber(), td.getSeatNumber());
+                int zone = zoneCode(td.getZoneType());
+                if (seat == null || zone < 0) {
+                    target.toFile().delete();
+                    return false;
+                }
+                buffer.putInt(layout.ticketIdColumn + ticket * 4, seat[0]);
+                buffer.putInt(layout.rowColumn + ticket * 4, seat[1]);
+                buffer.putInt(layout.seatColumn + ticket * 4, seat[2]);
+                buffer.put(layout.zoneColumn + ticket, (byte) zone);
+                buffer.putLong(layout.priceColumn + ticket * 8, td.getPriceCents());
+                ticket++;
+            }
+        }
+        int nameOffset = 0;
+        for (int i = 0; i < names.size(); i++) {
+            buffer.putInt(layout.nameOffsetColumn + i * 4, nameOffset);
+            buffer.put(layout.nameDataStart + nameOffset, names.get(i));
+            nameOffset += names.get(i).length;
+        }
+        buffer.putInt(layout.nameOffsetColumn + names.size() * 4, nameOffset);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        long[] fingerprint = fingerprint(bookingPath);
+        for (int i = 0; i < fingerprint.length; i++) {
+            buffer.putLong(FINGERPRINT_OFFSET + i * 8, fingerprint[i]);
+        }
+        for (int block = 0; block < layout.blockCount; block++) {
+            buffer.putLong(layout.blockColumn + block * 8, layout.getBlockChecksum(block));
+        }
+        buffer.putLong(CHECKSUM_OFFSET, layout.getHeaderChecksum());
+
+        Path temp = Paths.get(pathFor(bookingPath) + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            System.err.println(temp + "(No such file or directory)");
+            return false;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(target + "(No such file or directory)");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the size and modification time of the booking file and its journal,
+     * which tell whether a snapshot still matches them.
+     *
+     * @param bookingPath The path to the booking file.
+     * @return The size and modification time of both files.
+     */
+    private static long[] fingerprint(String bookingPath) {
+        File booking = new File(bookingPath);
+        File journal = new File(new BookingJournal(bookingPath, 0).getJournalPath());
+        return new long[] { booking.length(), booking.lastModified(), journal.length(), journal.lastModified() };
+    }
+
+    /**
+     * Converts IDs to integers if each of them is written as a plain number.
+     *
+     * @param values The IDs.
+     * @return The IDs as integers, or null if one of them is not a plain number.
+     */
+    private static int[] toInts(String... values) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            long id = toId(values[i]);
+            if (id == NOT_AN_ID) {
+                return null;
+            }
+            result[i] = (int) id;
+        }
+        return result;
+    }
+
+    /**
+     * Converts an ID to an integer if it is written as a plain number, the way
+     * Integer.toString writes it.
+     *
+     * @param s The ID.
+     * @return The ID as a number, or NOT_AN_ID if it is not a plain number.
+     */
+    private static long toId(String s) {
+        int i = s.startsWith("-") ? 1 : 0;
+        if (s.length() == i || s.length() > 11) {
+            return NOT_AN_ID;
+        }
+        long value = 0;
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_AN_ID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = s.startsWith("-") ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE || !Long.toString(value).equals(s)) {
+            return NOT_AN_ID;
+        }
+        return value;
+    }
+
+    /**
+     * Gets the code stored in the zone column.
+     *
+     * @param zoneType The zone type.
+     * @return The zone code, or -1 for an unknown zone.
+     */
+    private static int zoneCode(String zoneType) {
+        ZoneType zone = ZoneType.fromName(zoneType);
+        return zone == null ? -1 : zone.ordinal();
+    }
+}
@@ -0,0 +1,78 @@
+package storage;
+
+/**
+ * Counters of the commits of the booking sequencer: how many bookings each
+ * sync covered, and how long bookings waited from being requested to being
+ * answered. Requests that booked nothing, such as saving the booking file, are
+ * not counted. The sequencer thread records them and any thread may read them.
+ */
+public class CommitMetrics {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private long commits;
+    private long bookings;
+    private int largestBatch;
+    private long requests;
+    private long totalLatency;
+    private long longestLatency;
+
+    /**
+     * Records a commit.
+     *
+     * @param batchSize The number of bookings the commit covered.
+     */
+    public synchronized void recordCommit(int batchSize) {
+        commits++;
+        bookings += batchSize;
+        largestBatch = Math.max(largestBatch, batchSize);
+    }
+
+    /**
+     * Records how long a booking request waited for its answer.
+     *
+     * @param nanos The wait in nanoseconds.
+     */
+    public synchronized void recordLatency(long nanos) {
+        requests++;
+        totalLatency += nanos;
+        longestLatency = Math.max(longestLatency, nanos);
+    }
+
+    /**
+     * Gets the number of commits.
+     *
+     * @return The number of commits.
+     */
+    public synchronized long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Gets the average number of bookings of a commit.
+     *
+     * @return The average batch size, or 0 if nothing was committed.
+     */
+    public synchronized double getAverageBatch() {
+        return commits == 0 ? 0 : (double) bookings / commits;
+    }
+
+    /**
+     * Gets the average wait of a request in milliseconds.
+     *
+     * @return The average latency, or 0 if nothing was requested.
+     */
+    public synchronized double getAverageLatency() {
+        return requests == 0 ? 0 : totalLatency / NANOS_PER_MILLI / requests;
+    }
+
+    /**
+     * Gets a one line summary of the metrics.
+     *
+     * @return The summary.
+     */
+    public synchronized String getSummary() {
+        return String.format("Commits: %d, bookings: %d, average batch: %.1f, largest batch: %d, "
+                + "average latency: %.2f ms, longest latency: %.2f ms", commits, bookings, getAverageBatch(),
+                largestBatch, getAverageLatency(), longestLatency / NANOS_PER_MILLI);
+    }
+}
@@ -0,0 +1,30 @@
+package storage;
+
+/**
+ * Policies for when the booking sequencer syncs new bookings to the disk and
+ * answers the sessions that made them.
+ */
+public enum CommitPolicy {
+    // each booking is synced on its own before it is answered
+    SYNC,
+    // bookings are synced together once enough of them wait or the oldest has
+    // waited long enough, and answered after the sync
+    GROUP,
+    // bookings are answered once written, and the system syncs them later
+    ASYNC;
+
+    /**
+     * Gets a policy by its name, such as group, in any case.
+     *
+     * @param name The name of the policy.
+     * @return The policy, or null if the name is not a policy.
+     */
+    public static CommitPolicy fromName(String name) {
+        for (CommitPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+}
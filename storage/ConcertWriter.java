@@ -0,0 +1,165 @@
+package storage;
+
+import concert.Concert;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer that saves concert changes while the admin keeps working.
+ * A changed concert is turned into its line on the caller's thread and queued,
+ * and a later change to the same concert replaces the queued line. Lines are
+ * kept by their row in the concert file rather than by concert ID, so rows
+ * that share an ID are all written back. A writer
+ * thread saves the queued lines every flush interval by writing the whole
+ * concert file to a temporary file that replaces the concert file in one step,
+ * so a crash never leaves a half written concert file.
+ */
+public class ConcertWriter {
+    private static final String TEMP_SUFFIX = ".tmp";
+    public static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
+    private String concertPath;
+    private ArrayList<String> lines = new ArrayList<String>();
+    private IdentityHashMap<Concert, Integer> rows = new IdentityHashMap<Concert, Integer>();
+    private ConcurrentHashMap<Concert, String> pending = new ConcurrentHashMap<Concert, String>();
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor to initialize a ConcertWriter object.
+     *
+     * @param concertPath   The path to the concert file.
+     * @param concerts      A list of concerts, in the order they are written.
+     * @param flushInterval The milliseconds between saves, or 0 to only save
+     *                      when the writer is closed.
+     */
+    public ConcertWriter(String concertPath, ArrayList<Concert> concerts, int flushInterval) {
+        this.concertPath = concertPath;
+        for (Concert c : concerts) {
+            rows.put(c, lines.size());
+            lines.add(c.toCsvLine());
+        }
+        if (flushInterval > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "concert-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queues a changed concert to be saved. This never waits for the disk.
+     *
+     * @param concert The changed concert.
+     */
+    public void update(Concert concert) {
+        pending.put(concert, concert.toCsvLine());
+    }
+
+    /**
+     * Saves the queued changes, if there are any.
+     */
+    private synchronized void flush() {
+        if (drain()) {
+            write();
+        }
+    }
+
+    /**
+     * Moves the queued lines into the rows of their concerts. A concert that
+     * was not in the list is added as a new row.
+     *
+     * @return True if any line changed.
+     */
+    private boolean drain() {
+        boolean changed = false;
+        for (Concert concert : pending.keySet()) {
+            String line = pending.remove(concert);
+            if (line != null) {
+                Integer row = rows.get(concert);
+                if (row == null) {
+                    rows.put(concert, lines.size());
+                    lines.add(line);
+                } else {
+                    lines.set(row, line);
+                }
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Writes every concert to a temporary file that replaces the concert file.
+     * The temporary file is synced before the rename and the directory after
+     * it, so after a power loss the concert file is either the old or the new
+     * one in full.
+     */
+    private void write() {
+        Path target = Paths.get(concertPath);
+        Path temp = Paths.get(concertPath + TEMP_SUFFIX);
+        try {
+            FileOutputStream file = new FileOutputStream(temp.toFile());
+            BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8));
+            for (String line : lines) {
+                bw.write(line);
+                bw.newLine();
+            }
+            bw.flush();
+            file.getChannel().force(false);
+            bw.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(target.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            System.err.println(concertPath + "(No such file or directory)");
+        }
+    }
+
+    /**
+     * Syncs a directory so that a rename inside it survives a power loss.
+     * Systems that cannot open a directory keep the rename without it.
+     *
+     * @param directory The directory.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // the directory cannot be synced on this system
+        }
+    }
+
+    /**
+     * Stops the writer thread and saves the concert file one last time.
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            drain();
+            write();
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reader that memory-maps a comma separated file and splits each line into
+ * fields directly on the mapped bytes. Numbers are parsed in place and a String
+ * is only created when a caller asks for the text of a field, so lines that are
+ * skipped or only partly used do not allocate.
+ * Fields follow the rules of String.split(","), so trailing empty fields are
+ * dropped and an empty line has a single empty field.
+ */
+public class CsvReader implements Closeable {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final long NOT_AN_INT = Long.MIN_VALUE;
+    private static final long NOT_CENTS = Long.MIN_VALUE;
+    private static final int MAX_EXPONENT_DIGITS = 9;
+
+    private FileChannel channel;
+    private long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private int lineNumber;
+
+    private int lineStart;
+    private int lineEnd;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Constructor to open and map a whole file.
+     *
+     * @param path The path to the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public CsvReader(String path) throws IOException {
+        this(path, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor to open and map a range of a file. The range must start at
+     * the beginning of a line and end after a newline or at the end of the file.
+     * Line numbers are counted from the start of the range.
+     *
+     * @param path  The path to the file.
+     * @param start The file offset where the range starts.
+     * @param end   The file offset after the range.
+     * @throws IOException If the file cannot be opened.
+     */
+    public CsvReader(String path, long start, long end) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.end = Math.min(end, channel.size());
+        map(Math.min(start, this.end), 0);
+    }
+
+    /**
+     * Moves to the next line and splits it into fields.
+     *
+     * @return True if a line was read, false at the end of the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public boolean nextLine() throws IOException {
+        if (windowStart + position >= end) {
+            return false;
+        }
+        int newline = findNewline(position);
+        while (newline < 0 && windowStart + window.limit() < end) {
+            // the line continues past the mapped window, so map from its start
+            map(windowStart + position, window.limit() - position);
+            newline = findNewline(position);
+        }
+        lineStart = position;
+        lineEnd = newline < 0 ? window.limit() : newline;
+        position = newline < 0 ? window.limit() : newline + 1;
+        if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        lineNumber++;
+        split();
+        return true;
+    }
+
+    /**
+     * Gets the number of the current line, starting from 1.
+     *
+     * @return The line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the file offset where the current line starts.
+     *
+     * @return The offset of the current line.
+     */
+    public long getLineOffset() {
+        return windowStart + lineStart;
+    }
+
+    /**
+     * Gets the file offset after the current line and its newline.
+     *
+     * @return The offset of the next line.
+     */
+    public long getNextLineOffset() {
+        return windowStart + position;
+    }
+
+    /**
+     * Gets the number of fields in the current line.
+     *
+     * @return The number of fields.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Gets the whole current line.
+     *
+     * @return The current line.
+     */
+    public String getLine() {
+        return decode(lineStart, lineEnd);
+    }
+
+    /**
+     * Gets the text of a field.
+     *
+     * @param field The index of the field.
+     * @return The text of the field.
+     */
+    public String getString(int field) {
+        checkField(field);
+        return decode(fieldStarts[field], fieldEnds[field]);
+    }
+
+    /**
+     * Checks if a field has the same text as a string, without creating a
+     * String for the field.
+     *
+     * @param field The index of the field.
+     * @param s     The string to compare with, which must be ASCII.
+     * @return True if the field equals the string.
+     */
+    public boolean fieldEquals(int field, String s) {
+        checkField(field);
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (window.get(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a field is an integer in the same way as Integer.parseInt.
+     *
+     * @param field The index of the field.
+     * @return True if the field is an integer.
+     */
+    public boolean isInt(int field) {
+        checkField(field);
+        return parseInt(fieldStarts[field], fieldEnds[field]) != NOT_AN_INT;
+    }
+
+    /**
+     * Parses a field as an integer.
+     *
+     * @param field The index of the field.
+     * @return The value of the field.
+     * @throws NumberFormatException If the field is not an integer.
+     */
+    public int getInt(int field) {
+        checkField(field);
+        long value = parseInt(fieldStarts[field], fieldEnds[field]);
+        if (value == NOT_AN_INT) {
+            throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as an amount of money, rounding half a cent away from
+     * zero.
+     *
+     * @param field The index of the field.
+     * @return The amount in cents.
+     * @throws NumberFormatException If the field is not a number.
+     */
+    public long getCents(int field) {
+        checkField(field);
+        long cents = scanCents(fieldStarts[field], fieldEnds[field]);
+        if (cents == NOT_CENTS) {
+            throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+        }
+        return cents;
+    }
+
+    /**
+     * Parses one part of a field that is divided by another separator as an
+     * amount of money, such as the price 149 in "STANDING:99:149:99".
+     *
+     * @param field     The index of the field.
+     * @param separator The separator inside the field.
+     * @param part      The index of the part.
+     * @return The amount in cents.
+     * @throws NumberFormatException If the part is missing or not a number.
+     */
+    public long getCentsPart(int field, char separator, int part) {
+        int start = findPart(field, separator, part);
+        if (start < 0) {
+            throw new NumberFormatException("Missing part " + part + " in " + getString(field));
+        }
+        int end = findPartEnd(field, separator, start);
+        long cents = scanCents(start, end);
+        if (cents == NOT_CENTS) {
+            throw new NumberFormatException("For input string: \"" + decode(start, end) + "\"");
+        }
+        return cents;
+    }
+
+    /**
+     * Checks if a field is an amount of money.
+     *
+     * @param field The index of the field.
+     * @return True if getCents can parse the field.
+     */
+    public boolean isCents(int field) {
+        checkField(field);
+        return scanCents(fieldStarts[field], fieldEnds[field]) != NOT_CENTS;
+    }
+
+    /**
+     * Checks if one part of a field that is divided by another separator is an
+     * amount of money.
+     *
+     * @param field     The index of the field.
+     * @param separator The separator inside the field.
+     * @param part      The index of the part.
+     * @return True if getCentsPart can parse the part.
+     */
+    public boolean isCentsPart(int field, char separator, int part) {
+        int start = findPart(field, separator, part);
+        return start >= 0 && scanCents(start, findPartEnd(field, separator, start)) != NOT_CENTS;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Maps a window of the file.
+     *
+     * @param start   The file offset where the window starts.
+     * @param minimum The number of bytes the window must grow beyond.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void map(long start, int minimum) throws IOException {
+        long size = Math.min(end - start, Math.max(WINDOW_SIZE, (long) minimum * 2));
+        if (size > Integer.MAX_VALUE) {
+            size = Integer.MAX_VALUE;
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+        position = 0;
+    }
+
+    /**
+     * Finds the next newline in the mapped window.
+     *
+     * @param from The position to start from.
+     * @return The position of the newline, or -1 if there is none.
+     */
+    private int findNewline(int from) {
+        int limit = window.limit();
+        for (int i = from; i < limit; i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Splits the current line into fields.
+     */
+    private void split() {
+        fieldCount = 0;
+        int start = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (window.get(i) == ',') {
+                addField(start, i);
+                start = i + 1;
+            }
+        }
+        addField(start, lineEnd);
+        if (lineEnd > lineStart) {
+            while (fieldCount > 0 && fieldEnds[fieldCount - 1] == fieldStarts[fieldCount - 1]) {
+                fieldCount--;
+            }
+        }
+    }
+
+    /**
+     * Adds a field to the current line.
+     *
+     * @param start The position where the field starts.
+     * @param end   The position after the field.
+     */
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Checks that a field exists in the current line.
+     *
+     * @param field The index of the field.
+     */
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Index " + field + " out of bounds for length " + fieldCount);
+        }
+    }
+
+    /**
+     * Decodes bytes of the mapped window as UTF-8 text.
+     *
+     * @param start The position of the first byte.
+     * @param end   The position after the last byte.
+     * @return The decoded text.
+     */
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an integer with the same rules as Integer.parseInt.
+     *
+     * @param start The position of the first byte.
+     * @param end   The position after the last byte.
+     * @return The value, or NOT_AN_INT if the text is not an integer.
+     */
+    private long parseInt(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            return NOT_AN_INT;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_AN_INT;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_AN_INT;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return NOT_AN_INT;
+        }
+        return value;
+    }
+
+    /**
+     * Finds where one part of a field starts.
+     *
+     * @param field     The index of the field.
+     * @param separator The separator inside the field.
+     * @param part      The index of the part.
+     * @return The position where the part starts, or -1 if the part is
+     *         missing.
+     */
+    private int findPart(int field, char separator, int part) {
+        checkField(field);
+        int start = fieldStarts[field];
+        int fieldEnd = fieldEnds[field];
+        for (int i = 0; i < part; i++) {
+            while (start < fieldEnd && window.get(start) != separator) {
+                start++;
+            }
+            if (start == fieldEnd) {
+                return -1;
+            }
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Finds where a part of a field ends.
+     *
+     * @param field     The index of the field.
+     * @param separator The separator inside the field.
+     * @param start     The position where the part starts.
+     * @return The position after the last byte of the part.
+     */
+    private int findPartEnd(int field, char separator, int start) {
+        int fieldEnd = fieldEnds[field];
+        int end = start;
+        while (end < fieldEnd && window.get(end) != separator) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Scans an amount of money in cents without creating anything, accepting
+     * the same text as Money.parse: a decimal with an optional sign and
+     * exponent, such as 99, -149.5 or 1.2e3, with spaces around it. Half a
+     * cent is rounded away from zero.
+     *
+     * @param start The position of the first byte.
+     * @param end   The position after the last byte.
+     * @return The amount in cents, or NOT_CENTS if the text is not an amount
+     *         or does not fit in a long.
+     */
+    private long scanCents(int start, int end) {
+        while (start < end && (window.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (window.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        int firstDigit = i;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (b >= '0' && b <= '9') {
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                break;
+            }
+        }
+        int digitsEnd = i;
+        long exponent = 0;
+        if (i < end && (window.get(i) == 'e' || window.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+                negativeExponent = window.get(i) == '-';
+                i++;
+            }
+            if (i == end || end - i > MAX_EXPONENT_DIGITS) {
+                return NOT_CENTS;
+            }
+            for (; i < end; i++) {
+                byte b = window.get(i);
+                if (b < '0' || b > '9') {
+                    return NOT_CENTS;
+                }
+                exponent = exponent * 10 + (b - '0');
+            }
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+        if (digits == 0 || i != end) {
+            return NOT_CENTS;
+        }
+        // the power of ten of a cent that the last digit stands for
+        long shift = 2 - Math.max(fractionDigits, 0) + exponent;
+        long cents = 0;
+        boolean roundUp = false;
+        int index = 0;
+        for (int k = firstDigit; k < digitsEnd; k++) {
+            byte b = window.get(k);
+            if (b == '.') {
+                continue;
+            }
+            long power = shift + (digits - 1 - index++);
+            if (power >= 0) {
+                if (cents > (Long.MAX_VALUE - (b - '0')) / 10) {
+                    return NOT_CENTS;
+                }
+                cents = cents * 10 + (b - '0');
+            } else if (power == -1) {
+                roundUp = b >= '5';
+            }
+        }
+        for (long k = shift; k > 0 && cents != 0; k--) {
+            if (cents > Long.MAX_VALUE / 10) {
+                return NOT_CENTS;
+            }
+            cents *= 10;
+        }
+        if (roundUp) {
+            if (cents == Long.MAX_VALUE) {
+                return NOT_CENTS;
+            }
+            cents++;
+        }
+        return negative ? -cents : cents;
+    }
+}
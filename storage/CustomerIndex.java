@@ -0,0 +1,385 @@
+package storage;
+
+import java.util.Arrays;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Sidecar index of the customer file that maps each customer ID to the offset
+ * of its line, so that a login reads one line instead of the whole file.
+ *
+ * The index has a header, a section of entries sorted by customer ID and a
+ * tail of entries for lines appended since the sorted section was written.
+ * The header records how much of the customer file is indexed, together with
+ * a checksum of the bytes just before that point. When the customer file has
+ * only grown, the new lines are added to the tail, and the tail is merged into
+ * the sorted section once it gets long. When the indexed part has changed, the
+ * index is rebuilt from scratch.
+ */
+public class CustomerIndex {
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x544D5349; // "TMSI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_SIZE = 12;
+    private static final int FINGERPRINT_BYTES = 64;
+    private static final int MERGE_THRESHOLD = 4096;
+    private static final int MINIMUM_CUSTOMER_LENGTH = 3;
+
+    private String customerPath;
+    private String indexPath;
+    private ByteBuffer index;
+    private int sortedCount;
+    private int entryCount;
+    private boolean stale;
+
+    /**
+     * Constructor to initialize a CustomerIndex object.
+     *
+     * @param customerPath The path to the customer file.
+     */
+    public CustomerIndex(String customerPath) {
+        this.customerPath = customerPath;
+        this.indexPath = customerPath + INDEX_SUFFIX;
+    }
+
+    /**
+     * Finds the line of a customer, bringing the index up to date first.
+     *
+     * @param customerId The customer's ID.
+     * @param errors     The skipped lines found while indexing new lines.
+     * @return The fields of the customer's line, or null if the customer does
+     *         not exist.
+     * @throws IOException If the customer file or index cannot be read.
+     */
+    public String[] find(String customerId, LineErrors errors) throws IOException {
+        refresh(errors);
+        stale = false;
+        String[] fields = lookup(Integer.parseInt(customerId), customerId);
+        if (fields == null && stale) {
+            // an entry no longer points at its line, so the file was edited in place
+            long csvLength = new File(customerPath).length();
+            write(scan(0, csvLength, new LineErrors(false)).sorted(), csvLength);
+            map();
+            fields = lookup(Integer.parseInt(customerId), customerId);
+        }
+        return fields;
+    }
+
+    /**
+     * Looks up a customer in the mapped index.
+     *
+     * @param id         The customer's ID as a number.
+     * @param customerId The customer's ID as written.
+     * @return The fields of the customer's line, or null if it is not found.
+     * @throws IOException If the customer file cannot be read.
+     */
+    private String[] lookup(int id, String customerId) throws IOException {
+        // the first line in the file wins, and sorted entries come before the tail
+        int low = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getId(mid) < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < sortedCount && getId(i) == id; i++) {
+            String[] fields = readLine(getOffset(i), customerId);
+            if (fields != null) {
+                return fields;
+            }
+        }
+        for (int i = sortedCount; i < entryCount; i++) {
+            if (getId(i) == id) {
+                String[] fields = readLine(getOffset(i), customerId);
+                if (fields != null) {
+                    return fields;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Brings the index up to date with the customer file and maps it.
+     *
+     * @param errors The skipped lines found while indexing new lines.
+     * @throws IOException If the customer file or index cannot be read.
+     */
+    private void refresh(LineErrors errors) throws IOException {
+        long csvLength = new File(customerPath).length();
+        ByteBuffer header = readHeader();
+        if (header == null || header.getLong(8) > csvLength
+                || header.getLong(16) != fingerprint(header.getLong(8))) {
+            Entries all = scan(0, csvLength, errors);
+            write(all.sorted(), csvLength);
+        } else if (header.getLong(8) < csvLength) {
+            Entries added = scan(header.getLong(8), csvLength, errors);
+            map();
+            if (entryCount - sortedCount + added.count > MERGE_THRESHOLD) {
+                Entries all = new Entries();
+                for (int i = 0; i < entryCount; i++) {
+                    all.add(getId(i), getOffset(i));
+                }
+                for (int i = 0; i < added.count; i++) {
+                    all.add(added.ids[i], added.offsets[i]);
+                }
+                write(all.sorted(), csvLength);
+            } else {
+                append(added, csvLength);
+            }
+        }
+        map();
+    }
+
+    /**
+     * Reads the header of the index if the index file is valid.
+     *
+     * @return The header, or null if there is no valid index.
+     */
+    private ByteBuffer readHeader() {
+        File file = new File(indexPath);
+        if (!file.exists() || file.length() < HEADER_SIZE || (file.length() - HEADER_SIZE) % ENTRY_SIZE != 0) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || header.getInt(24) > (file.length() - HEADER_SIZE) / ENTRY_SIZE) {
+                return null;
+            }
+            return header;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Maps the index file.
+     *
+     * @throws IOException If the index cannot be read.
+     */
+    private void map() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(indexPath), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            index = mapped;
+            sortedCount = mapped.getInt(24);
+            entryCount = (int) ((channel.size() - HEADER_SIZE) / ENTRY_SIZE);
+        }
+    }
+
+    /**
+     * Reads the lines in a range of the customer file and records the ID and
+     * offset of each valid line.
+     *
+     * @param start  The offset to start from.
+     * @param end    The offset to stop at.
+     * @param errors The skipped lines.
+     * @return The IDs and offsets of the valid lines, in file order.
+     * @throws IOException If the customer file cannot be read.
+     */
+    private Entries scan(long start, long end, LineErrors errors) throws IOException {
+        Entries entries = new Entries();
+        try (CsvReader reader = new CsvReader(customerPath, start, end)) {
+            while (reader.nextLine()) {
+                if (reader.getFieldCount() < MINIMUM_CUSTOMER_LENGTH) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_CUSTOMER_LINE);
+                } else if (!reader.isInt(0)) {
+                    errors.add(reader.getLineNumber(), LineError.INVALID_CUSTOMER_ID);
+                } else {
+                    entries.add(reader.getInt(0), reader.getLineOffset());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes a new index file that replaces the old one in one step.
+     *
+     * @param sorted    The entries sorted by customer ID.
+     * @param csvLength The length of the customer file that is indexed.
+     * @throws IOException If the index cannot be written.
+     */
+    private void write(Entries sorted, long csvLength) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + sorted.count * ENTRY_SIZE);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, csvLength);
+        buffer.putLong(16, fingerprint(csvLength));
+        buffer.putInt(24, sorted.count);
+        for (int i = 0; i < sorted.count; i++) {
+            buffer.putInt(HEADER_SIZE + i * ENTRY_SIZE, sorted.ids[i]);
+            buffer.putLong(HEADER_SIZE + i * ENTRY_SIZE + 4, sorted.offsets[i]);
+        }
+        Path temp = Paths.get(indexPath + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, Paths.get(indexPath), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds entries to the tail of the index and moves the indexed length
+     * forward. The entries are written before the header, so an interrupted
+     * append only leaves entries that are indexed again later.
+     *
+     * @param added     The entries for the new lines.
+     * @param csvLength The length of the customer file that is indexed.
+     * @throws IOException If the index cannot be written.
+     */
+    private void append(Entries added, long csvLength) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(added.count * ENTRY_SIZE);
+        for (int i = 0; i < added.count; i++) {
+            buffer.putInt(i * ENTRY_SIZE, added.ids[i]);
+            buffer.putLong(i * ENTRY_SIZE + 4, added.offsets[i]);
+        }
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putLong(0, csvLength);
+        header.putLong(8, fingerprint(csvLength));
+        try (FileChannel channel = FileChannel.open(Paths.get(indexPath), StandardOpenOption.WRITE)) {
+            long position = HEADER_SIZE + (long) entryCount * ENTRY_SIZE;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.write(header, 8);
+        }
+    }
+
+    /**
+     * Computes a checksum of the bytes just before a point in the customer
+     * file, which changes if the indexed part of the file is rewritten.
+     *
+     * @param length The indexed length of the customer file.
+     * @return The checksum.
+     */
+    private long fingerprint(long length) {
+        int size = (int) Math.min(length, FINGERPRINT_BYTES);
+        ByteBuffer bytes = ByteBuffer.allocate(size);
+        try (FileChannel channel = FileChannel.open(Paths.get(customerPath), StandardOpenOption.READ)) {
+            while (bytes.hasRemaining() && channel.read(bytes, length - size + bytes.position()) > 0) {
+                // keep reading until the buffer is full
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.flip());
+        return crc.getValue() ^ length;
+    }
+
+    /**
+     * Gets the customer ID of an entry.
+     *
+     * @param i The index of the entry.
+     * @return The customer ID.
+     */
+    private int getId(int i) {
+        return index.getInt(HEADER_SIZE + i * ENTRY_SIZE);
+    }
+
+    /**
+     * Gets the line offset of an entry.
+     *
+     * @param i The index of the entry.
+     * @return The offset of the customer's line.
+     */
+    private long getOffset(int i) {
+        return index.getLong(HEADER_SIZE + i * ENTRY_SIZE + 4);
+    }
+
+    /**
+     * Reads the customer line at an offset if its ID is written exactly as
+     * the given ID. An offset that is not at the start of a line with the
+     * same ID marks the index as stale.
+     *
+     * @param offset     The offset of the line.
+     * @param customerId The customer's ID.
+     * @return The fields of the line, or null if the line has another ID.
+     * @throws IOException If the customer file cannot be read.
+     */
+    private String[] readLine(long offset, String customerId) throws IOException {
+        try (CsvReader reader = new CsvReader(customerPath, Math.max(offset - 1, 0), Long.MAX_VALUE)) {
+            if (offset > 0 && (!reader.nextLine() || reader.getNextLineOffset() != offset)) {
+                stale = true;
+                return null;
+            }
+            if (!reader.nextLine() || reader.getFieldCount() < MINIMUM_CUSTOMER_LENGTH
+                    || !reader.isInt(0) || reader.getInt(0) != Integer.parseInt(customerId)) {
+                stale = true;
+                return null;
+            }
+            if (!reader.fieldEquals(0, customerId)) {
+                return null;
+            }
+            String[] fields = new String[reader.getFieldCount()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = reader.getString(i);
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * Growable list of customer IDs and line offsets.
+     */
+    private static class Entries {
+        private int[] ids = new int[16];
+        private long[] offsets = new long[16];
+        private int count;
+
+        /**
+         * Adds an entry.
+         *
+         * @param id     The customer ID.
+         * @param offset The offset of the customer's line.
+         */
+        private void add(int id, long offset) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            ids[count] = id;
+            offsets[count] = offset;
+            count++;
+        }
+
+        /**
+         * Sorts the entries by customer ID, keeping entries with the same ID in
+         * the order they were added.
+         *
+         * @return The sorted entries.
+         */
+        private Entries sorted() {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = ((long) (ids[i] ^ Integer.MIN_VALUE) << 32) | i;
+            }
+            Arrays.sort(keys);
+            Entries sorted = new Entries();
+            for (long key : keys) {
+                int i = (int) key;
+                sorted.add(ids[i], offsets[i]);
+            }
+            return sorted;
+        }
+    }
+}
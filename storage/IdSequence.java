@@ -0,0 +1,112 @@
+package storage;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequence file that hands out new customer IDs without reading the customer
+ * file. The sequence file keeps the next free ID and how much of the customer
+ * file has been checked for IDs. Only lines appended since the last allocation
+ * are read, so an ID taken by another program is never handed out again.
+ * The sequence file is locked while an ID is allocated, so two registrations
+ * running at the same time always get different IDs.
+ */
+public class IdSequence {
+    private static final String SEQUENCE_SUFFIX = ".seq";
+    private static final int MAGIC = 0x544D5351; // "TMSQ"
+    private static final int SEQUENCE_SIZE = 24;
+
+    private String customerPath;
+    private String sequencePath;
+
+    /**
+     * Constructor to initialize an IdSequence object.
+     *
+     * @param customerPath The path to the customer file.
+     * @throws FileNotFoundException If the customer file does not exist.
+     */
+    public IdSequence(String customerPath) throws FileNotFoundException {
+        if (!new File(customerPath).isFile()) {
+            throw new FileNotFoundException(customerPath);
+        }
+        this.customerPath = customerPath;
+        this.sequencePath = customerPath + SEQUENCE_SUFFIX;
+    }
+
+    /**
+     * Allocates the next customer ID.
+     *
+     * @return A customer ID that is not used in the customer file.
+     * @throws IOException If the customer file or sequence file cannot be read.
+     */
+    public int next() throws IOException {
+        // a file lock cannot be taken twice in one program, so threads queue here first
+        synchronized (IdSequence.class) {
+            try (FileChannel channel = FileChannel.open(Paths.get(sequencePath), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer sequence = ByteBuffer.allocate(SEQUENCE_SIZE);
+                    while (sequence.hasRemaining() && channel.read(sequence, sequence.position()) > 0) {
+                        // read the whole sequence
+                    }
+                    long csvLength = new File(customerPath).length();
+                    long nextId;
+                    if (sequence.hasRemaining() || sequence.getInt(0) != MAGIC
+                            || sequence.getLong(16) > csvLength) {
+                        // no sequence yet, or the customer file was rewritten
+                        nextId = seed(0, csvLength, true);
+                    } else {
+                        nextId = Math.max(sequence.getLong(8), seed(sequence.getLong(16), csvLength, false));
+                    }
+                    if (nextId > Integer.MAX_VALUE) {
+                        throw new IOException(customerPath + " has no customer ID left");
+                    }
+                    sequence.clear();
+                    sequence.putInt(0, MAGIC);
+                    sequence.putLong(8, nextId + 1);
+                    sequence.putLong(16, csvLength);
+                    channel.write(sequence, 0);
+                    channel.force(false);
+                    return (int) nextId;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the smallest ID above every ID in part of the customer file.
+     *
+     * @param start      The offset of the first line to check.
+     * @param end        The offset after the last line to check.
+     * @param countLines True to also stay above the number of lines, as IDs
+     *                   were once given out by counting lines.
+     * @return The next free ID for that part of the file.
+     * @throws IOException If the customer file cannot be read.
+     */
+    private long seed(long start, long end, boolean countLines) throws IOException {
+        if (start >= end) {
+            return 1;
+        }
+        long nextId = 1;
+        try (CsvReader reader = new CsvReader(customerPath, start, end)) {
+            while (reader.nextLine()) {
+                if (reader.isInt(0)) {
+                    nextId = Math.max(nextId, (long) reader.getInt(0) + 1);
+                }
+            }
+            if (countLines) {
+                nextId = Math.max(nextId, reader.getLineNumber() + 1);
+            }
+        }
+        return nextId;
+    }
+}
@@ -0,0 +1,37 @@
+package storage;
+
+/**
+ * Reasons a line of a data file can be skipped, with the message shown for
+ * each of them.
+ */
+public enum LineError {
+    INVALID_CUSTOMER_LINE("Invalid Customer Files. Skipping this line."),
+    INVALID_CUSTOMER_ID("Customer Id is in incorrect format. Skipping this line."),
+    INVALID_CONCERT_LINE("Invalid Concert Files. Skipping this line."),
+    INVALID_CONCERT_ID("Concert Id is in incorrect format. Skipping this line."),
+    INVALID_BOOKING_LINE("Invalid booking Files. Skipping this line."),
+    INVALID_BOOKING_ID("Booking Id is in incorrect format. Skipping this line."),
+    INVALID_TICKET_COUNT("Incorrect Number of Tickets. Skipping this line."),
+    INVALID_ZONE_TYPE("Invalid Zone Type. Skipping this line."),
+    INVALID_PRICE("Price is in incorrect format. Skipping this line.");
+
+    private final String message;
+
+    /**
+     * Constructor to initialize a LineError.
+     *
+     * @param message The message shown when a line is skipped for this reason.
+     */
+    LineError(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Gets the message shown when a line is skipped for this reason.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,141 @@
+package storage;
+
+import java.util.Arrays;
+
+/**
+ * Collection of the lines that were skipped while reading a file, with the
+ * reason for each of them. Adding a line only records its number and reason,
+ * so a file with many bad lines loads about as fast as a clean one. At most
+ * MAX_PRINTED messages are printed, each with its line number whether it is
+ * printed at once or later, and the rest are counted in a summary.
+ */
+public class LineErrors {
+    public static final int MAX_PRINTED = 20;
+
+    private boolean printImmediately;
+    private int[] lineNumbers = new int[8];
+    private LineError[] reasons = new LineError[8];
+    private int size;
+    private int printed;
+    private int[] counts = new int[LineError.values().length];
+
+    /**
+     * Constructor to initialize a LineErrors object.
+     *
+     * @param printImmediately True to print each message as soon as it is added,
+     *                         false to keep the messages until print is called.
+     */
+    public LineErrors(boolean printImmediately) {
+        this.printImmediately = printImmediately;
+    }
+
+    /**
+     * Adds a skipped line.
+     *
+     * @param lineNumber The number of the line.
+     * @param reason     The reason the line was skipped.
+     */
+    public void add(int lineNumber, LineError reason) {
+        if (size == lineNumbers.length) {
+            lineNumbers = Arrays.copyOf(lineNumbers, size * 2);
+            reasons = Arrays.copyOf(reasons, size * 2);
+        }
+        lineNumbers[size] = lineNumber;
+        reasons[size] = reason;
+        size++;
+        counts[reason.ordinal()]++;
+        if (printImmediately && printed < MAX_PRINTED) {
+            System.out.println(getMessage(size - 1));
+            printed++;
+        }
+    }
+
+    /**
+     * Adds the skipped lines of a part of the same file.
+     *
+     * @param other      The skipped lines of the part.
+     * @param lineOffset The number of lines before the part.
+     */
+    public void addAll(LineErrors other, int lineOffset) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.lineNumbers[i] + lineOffset, other.reasons[i]);
+        }
+    }
+
+    /**
+     * Gets the number of skipped lines.
+     *
+     * @return The number of skipped lines.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of a skipped line.
+     *
+     * @param i The position of the skipped line, in the order it was added.
+     * @return The line number.
+     */
+    public int getLineNumber(int i) {
+        return lineNumbers[i];
+    }
+
+    /**
+     * Gets the reason a line was skipped.
+     *
+     * @param i The position of the skipped line, in the order it was added.
+     * @return The reason.
+     */
+    public LineError getReason(int i) {
+        return reasons[i];
+    }
+
+    /**
+     * Gets the number of lines skipped for a reason.
+     *
+     * @param reason The reason.
+     * @return The number of lines skipped for the reason.
+     */
+    public int getCount(LineError reason) {
+        return counts[reason.ordinal()];
+    }
+
+    /**
+     * Prints the skipped lines that were not printed yet in the order they were
+     * added, followed by the summary.
+     */
+    public void print() {
+        for (int i = printed; i < size && printed < MAX_PRINTED; i++) {
+            System.out.println(getMessage(i));
+            printed++;
+        }
+        printSummary();
+    }
+
+    /**
+     * Gets the message printed for a skipped line.
+     *
+     * @param i The position of the skipped line, in the order it was added.
+     * @return The line number followed by the reason.
+     */
+    private String getMessage(int i) {
+        return "Line " + lineNumbers[i] + ": " + reasons[i].getMessage();
+    }
+
+    /**
+     * Prints how many lines were skipped for each reason, if some of them were
+     * not printed.
+     */
+    public void printSummary() {
+        if (printed == size) {
+            return;
+        }
+        System.out.println(size + " lines skipped, " + (size - printed) + " not shown:");
+        for (LineError reason : LineError.values()) {
+            if (counts[reason.ordinal()] > 0) {
+                System.out.println("  " + counts[reason.ordinal()] + " x " + reason.getMessage());
+            }
+        }
+    }
+}
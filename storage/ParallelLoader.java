@@ -0,0 +1,196 @@
+package storage;
+
+import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loader that splits a large file into ranges that start and end on line
+ * boundaries, parses the ranges on the fork-join pool and joins the results in
+ * file order.
+ *
+ * @param <T> The type of object parsed from each line.
+ */
+public class ParallelLoader<T> {
+    private static final long MINIMUM_CHUNK_SIZE = 1024 * 1024;
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int SCAN_SIZE = 8192;
+
+    /**
+     * Interface for parsing one line of the file.
+     *
+     * @param <T> The type of object parsed from each line.
+     */
+    public interface LineParser<T> {
+
+        /**
+         * Parses the current line of a reader.
+         *
+         * @param reader The reader positioned on the line.
+         * @param errors The skipped lines of the range being parsed.
+         * @return The parsed object, or null if the line was skipped.
+         */
+        T parse(CsvReader reader, LineErrors errors);
+    }
+
+    private String path;
+    private LineParser<T> parser;
+
+    /**
+     * Constructor to initialize a ParallelLoader object.
+     *
+     * @param path   The path to the file.
+     * @param parser The parser for each line.
+     */
+    public ParallelLoader(String path, LineParser<T> parser) {
+        this.path = path;
+        this.parser = parser;
+    }
+
+    /**
+     * Parses every line of the file.
+     *
+     * @param errors The skipped lines, numbered by their position in the file.
+     * @return The parsed objects in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    public ArrayList<T> load(LineErrors errors) throws IOException {
+        long[] bounds = split();
+        ArrayList<ChunkTask> tasks = new ArrayList<ChunkTask>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            tasks.add(new ChunkTask(bounds[i], bounds[i + 1]));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+
+        int size = 0;
+        for (ChunkTask task : tasks) {
+            if (task.failure != null) {
+                throw task.failure;
+            }
+            size += task.results.size();
+        }
+        ArrayList<T> results = new ArrayList<T>(size);
+        int lineOffset = 0;
+        for (ChunkTask task : tasks) {
+            results.addAll(task.results);
+            errors.addAll(task.errors, lineOffset);
+            lineOffset += task.lines;
+        }
+        return results;
+    }
+
+    /**
+     * Splits the file into ranges that each begin at the start of a line.
+     *
+     * @return The offsets where the ranges start, followed by the file size.
+     * @throws IOException If the file cannot be read.
+     */
+    private long[] split() throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int workers = ForkJoinPool.commonPool().getParallelism();
+            long chunkSize = Math.max(MINIMUM_CHUNK_SIZE, size / ((long) workers * CHUNKS_PER_WORKER) + 1);
+            ArrayList<Long> bounds = new ArrayList<Long>();
+            bounds.add(0L);
+            ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+            long next = chunkSize;
+            while (next < size) {
+                long lineStart = nextLineStart(channel, next, scan);
+                if (lineStart >= size) {
+                    break;
+                }
+                bounds.add(lineStart);
+                next = lineStart + chunkSize;
+            }
+            bounds.add(size);
+            long[] result = new long[bounds.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bounds.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Finds the start of the first line after an offset.
+     *
+     * @param channel The open file.
+     * @param offset  The offset to search from.
+     * @param scan    A buffer for reading the file.
+     * @return The offset after the next newline, or the file size if there is
+     *         none.
+     * @throws IOException If the file cannot be read.
+     */
+    private long nextLineStart(FileChannel channel, long offset, ByteBuffer scan) throws IOException {
+        long position = offset;
+        while (true) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Task that parses one range of the file.
+     */
+    @SuppressWarnings("serial")
+    private class ChunkTask extends RecursiveTask<Void> {
+        private long start;
+        private long end;
+        private ArrayList<T> results = new ArrayList<T>();
+        private LineErrors errors = new LineErrors(false);
+        private int lines;
+        private IOException failure;
+
+        /**
+         * Constructor to initialize a ChunkTask object.
+         *
+         * @param start The file offset where the range starts.
+         * @param end   The file offset after the range.
+         */
+        private ChunkTask(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Parses the lines of the range.
+         *
+         * @return Nothing, the results are kept in the task.
+         */
+        @Override
+        protected Void compute() {
+            try (CsvReader reader = new CsvReader(path, start, end)) {
+                while (reader.nextLine()) {
+                    T result = parser.parse(reader, errors);
+                    if (result != null) {
+                        results.add(result);
+                    }
+                }
+                lines = reader.getLineNumber();
+            } catch (IOException e) {
+                failure = e;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue that many threads put elements on and one thread takes them
+ * from, in the order they were put. Each slot has a sequence number that says
+ * whether it is free for the next put or holds an element for the next take,
+ * so neither side ever holds a lock. A thread putting an element claims a slot
+ * by moving the tail on with a compare-and-set.
+ *
+ * @param <E> The type of the elements.
+ */
+public class RingBuffer<E> {
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // only used by the taking thread
+
+    /**
+     * Constructor to initialize an empty RingBuffer object.
+     *
+     * @param capacity The number of slots, rounded up to a power of two.
+     */
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        slots = new Object[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Puts an element on the queue if there is room.
+     *
+     * @param element The element.
+     * @return True if the element was put, or false if the queue is full.
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    // publishes the element to the taking thread
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the next element from the queue. Only one thread may take.
+     *
+     * @return The element, or null if the queue is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        // frees the slot for the put that comes one lap later
+        sequences.set(index, head + slots.length);
+        head++;
+        return element;
+    }
+}
@@ -2,12 +2,9 @@ package user;
 
 import concert.*;
 import booking.*;
+import storage.ConcertWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.io.PrintWriter;
-import java.io.FileWriter;
-import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.util.InputMismatchException;
 
 /**
  * an admin action such as updating ticket prices, viewing bookings and viewing
@@ -22,16 +19,35 @@ public class Admin extends User {
     private static final int VIEW_TOTAL_PAYMENT = 4;
     private static final int QUIT_MAIN = 5;
 
+    private ConcertWriter writer;
+
+    /**
+     * Constructor to initialize an Admin whose price changes are only saved
+     * when the admin exits.
+     */
+    public Admin() {
+    }
+
+    /**
+     * Constructor to initialize an Admin whose price changes are saved in the
+     * background as they are made.
+     *
+     * @param writer The writer that saves changed concerts.
+     */
+    public Admin(ConcertWriter writer) {
+        this.writer = writer;
+    }
+
     /**
      * Displays the main menu for admin and handles user input to perform actions.
      *
      * @param concerts List of concerts.
-     * @param venues   Map of venue names to Venue objects.
+     * @param venues   Catalog of the venues of each concert.
      * @param bookings List of bookings.
      * @param id       optional IDs.
      */
     @Override
-    public void mainMenu(ArrayList<Concert> concerts, HashMap<String, Venue> venues, ArrayList<Booking> bookings,
+    public void mainMenu(ArrayList<Concert> concerts, VenueCatalog venues, BookingRepository bookings,
             int... id) {
         boolean runLoop = true;
         int option;
@@ -58,11 +74,11 @@ public class Admin extends User {
                         showTotalPayment(super.findBooking(bookings, concertId + ""));
                     break;
                 case QUIT_MAIN:
-                    System.out.println("Exiting admin mode");
+                    out.println("Exiting admin mode");
                     runLoop = false;
                     break;
                 default:
-                    System.out.println("Invalid Input");
+                    out.println("Invalid Input");
             }
         }
     }
@@ -72,13 +88,13 @@ public class Admin extends User {
      */
     @Override
     public void printMenu() {
-        System.out.println("Select an option to get started!");
-        System.out.println("Press 1 to view all the concert details");
-        System.out.println("Press 2 to update the ticket costs");
-        System.out.println("Press 3 to view booking details");
-        System.out.println("Press 4 to view total payment received for a concert");
-        System.out.println("Press 5 to exit");
-        System.out.print("> ");
+        out.println("Select an option to get started!");
+        out.println("Press 1 to view all the concert details");
+        out.println("Press 2 to update the ticket costs");
+        out.println("Press 3 to view booking details");
+        out.println("Press 4 to view total payment received for a concert");
+        out.println("Press 5 to exit");
+        out.print("> ");
     }
 
     /**
@@ -89,15 +105,15 @@ public class Admin extends User {
     public void updateTicket(Concert concert) {
         super.showTicketCost(concert);
 
-        System.out.print("Enter the zone : VIP, SEATING, STANDING: ");
+        out.print("Enter the zone : VIP, SEATING, STANDING: ");
         String zone = scanner.next();
-        System.out.println();
-        System.out.print("Left zone price: ");
-        double leftPrice = scanner.nextDouble();
-        System.out.print("Centre zone price: ");
-        double centrePrice = scanner.nextDouble();
-        System.out.print("Right zone price: ");
-        double rightPrice = scanner.nextDouble();
+        out.println();
+        out.print("Left zone price: ");
+        long leftPrice = nextCents();
+        out.print("Centre zone price: ");
+        long centrePrice = nextCents();
+        out.print("Right zone price: ");
+        long rightPrice = nextCents();
         switch (zone) {
             case ("SEATING"):
                 concert.SetSeatingPrice(leftPrice, centrePrice, rightPrice);
@@ -109,20 +125,38 @@ public class Admin extends User {
                 concert.SetStandingPrice(leftPrice, centrePrice, rightPrice);
                 break;
         }
+        if (writer != null) {
+            writer.update(concert);
+        }
+    }
+
+    /**
+     * Reads a price typed by the admin, such as 99 or 149.50.
+     *
+     * @return The price in cents.
+     * @throws InputMismatchException If the input is not a price.
+     */
+    private long nextCents() {
+        String price = scanner.next();
+        try {
+            return Money.parse(price);
+        } catch (NumberFormatException e) {
+            throw new InputMismatchException(price);
+        }
     }
 
     /**
      * select a concert from the list of concerts.
      *
      * @param concerts List of concerts.
-     * @param venues   Map of venue names to Venue objects.
+     * @param venues   Catalog of the venues of each concert.
      * @param bookings List of bookings.
      * @return The ID of the selected concert.
      */
-    public int selectConcert(ArrayList<Concert> concerts, HashMap<String, Venue> venues, ArrayList<Booking> bookings) {
-        System.out.println("Select a concert or 0 to exit");
+    public int selectConcert(ArrayList<Concert> concerts, VenueCatalog venues, BookingRepository bookings) {
+        out.println("Select a concert or 0 to exit");
         super.showTimings(concerts, venues, bookings);
-        System.out.print("> ");
+        out.print("> ");
         int concertId = scanner.nextInt();
         return concertId;
     }
@@ -133,43 +167,27 @@ public class Admin extends User {
      * @param bookings List of bookings for the concert.
      */
     public void showTotalPayment(ArrayList<Booking> bookings) {
-        double totalPayment = 0;
+        long totalPayment = 0;
         for (Booking b : bookings) {
-            for (TicketDetail td : b.getTicketDetails()) {
-                totalPayment += td.getPrice();
+            TicketStore tickets = b.getTickets();
+            for (int i = 0; i < tickets.size(); i++) {
+                totalPayment += tickets.getCents(i);
             }
         }
-        System.out.println("Total Price for this concert is AUD " + totalPayment);
+        out.println("Total Price for this concert is AUD " + Money.format(totalPayment));
     }
 
     /**
-     * Writes the concert price to a concert file.
+     * Writes the concert price to a concert file. The file is replaced in one
+     * step, so it is never left half written.
      *
      * @param updateConcerts List of concerts to be updated.
      * @param concertPath    Path to the concert file.
      */
     public void updateConcert(ArrayList<Concert> updateConcerts, String concertPath) {
-        PrintWriter pw = null;
-        try {
-            pw = new PrintWriter(new FileWriter(concertPath));
-
-            for (Concert c : updateConcerts) {
-                String standingPrice = "STANDING" + ":" + c.getStandingPrice()[0] + ":" + c.getStandingPrice()[1] + ":"
-                        + c.getStandingPrice()[2];
-                String seatingPrice = "SEATING" + ":" + c.getSeatingPrice()[0] + ":" + c.getSeatingPrice()[1] + ":"
-                        + c.getSeatingPrice()[2];
-                String vipPrice = "VIP" + ":" + c.getVipPrice()[0] + ":" + c.getVipPrice()[1] + ":"
-                        + c.getVipPrice()[2];
-                pw.print(c.getConcertId() + "," + c.getDate() + "," + c.getTiming() + "," + c.getArtist() + ","
-                        + c.getVenue() + "," + standingPrice + "," + seatingPrice + "," + vipPrice);
-                pw.println();
-                pw.flush();
-            }
-        } catch (FileNotFoundException e) {
-            System.err.println(concertPath + "(No such file or directory)");
-        } catch (IOException e) {
-            System.err.println(concertPath + "(No such file or directory)");
+        if (writer == null) {
+            writer = new ConcertWriter(concertPath, updateConcerts, 0);
         }
-        pw.close();
+        writer.close();
     }
 }
@@ -2,10 +2,11 @@ package user;
 
 import concert.*;
 import booking.*;
+import storage.BookingSequencer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.CompletionException;
 import java.io.PrintWriter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
@@ -18,15 +19,13 @@ public class Customer extends User {
     private String password;
     private String customerId;
     private String name;
+    private BookingSequencer sequencer;
 
     private static final int TICKET_COST = 1;
     private static final int VIEW_LAYOUT = 2;
     private static final int BOOK_SEATS = 3;
     private static final int BOOK_Details = 4;
     private static final int QUIT_MAIN = 5;
-    private static final char VIP = 'V';
-    private static final char SEATING = 'S';
-    private static final char STANDING = 'T';
 
     public Customer(String customerId, String name, String password) {
         this.name = name;
@@ -38,12 +37,12 @@ public class Customer extends User {
      * Displays the main menu for the customer and handles customer input.
      *
      * @param concerts A list of concerts.
-     * @param venues   A map of concert IDs to their corresponding venues.
+     * @param venues   A catalog of the venues of each concert.
      * @param bookings A list of bookings.
      * @param id       The ID of the concert.
      */
     @Override
-    public void mainMenu(ArrayList<Concert> concerts, HashMap<String, Venue> venues, ArrayList<Booking> bookings,
+    public void mainMenu(ArrayList<Concert> concerts, VenueCatalog venues, BookingRepository bookings,
             int... id) {
         int concertId = id[0];
         Concert concert = concerts.get(concertId - 1);
@@ -58,28 +57,37 @@ public class Customer extends User {
                     super.showTicketCost(concert);
                     break;
                 case VIEW_LAYOUT:
-                    showVenueLayout(venue, bookings, concertId + "");
+                    showVenueLayout(venue);
                     break;
                 case BOOK_SEATS:
-                    showVenueLayout(venue, bookings, concertId + "");
-                    System.out.print("Enter the aisle number: ");
+                    showVenueLayout(venue);
+                    out.print("Enter the aisle number: ");
                     String aisle = scanner.next();
-                    System.out.print("Enter the seat number: ");
-                    String seatNum = scanner.next();
-                    System.out.print("Enter the number of seats to be booked: ");
+                    ZoneType zone = ZoneType.fromLetter(aisle.charAt(0));
+                    String seatNum = null;
+                    if (aisle.length() > 1 || zone == null) {
+                        out.print("Enter the seat number: ");
+                        seatNum = scanner.next();
+                    }
+                    out.print("Enter the number of seats to be booked: ");
                     int numTickets = scanner.nextInt();
-                    bookings.add(this.selectSeat(concert, venue, bookings, aisle, seatNum, numTickets));
+                    Booking booking = book(concert, venue, bookings, aisle, seatNum, numTickets);
+                    if (booking == null && seatNum == null) {
+                        out.println("No " + numTickets + " adjacent seats are available in " + zone);
+                    } else if (booking == null) {
+                        out.println("The selected seats are not available");
+                    }
                     break;
                 case BOOK_Details:
                     ArrayList<Booking> customerBooking = findBookingByCustomer(bookings, customerId, concertId + "");
                     super.showBooking(concerts.get(concertId - 1), customerBooking);
                     break;
                 case QUIT_MAIN:
-                    System.out.println("Exiting this concert");
+                    out.println("Exiting this concert");
                     runLoop = false;
                     break;
                 default:
-                    System.out.println("Invalid Input");
+                    out.println("Invalid Input");
             }
         }
     }
@@ -89,58 +97,150 @@ public class Customer extends User {
      */
     @Override
     public void printMenu() {
-        System.out.println("Select an option to get started!");
-        System.out.println("Press 1 to look at the ticket costs");
-        System.out.println("Press 2 to view seats layout");
-        System.out.println("Press 3 to book seats");
-        System.out.println("Press 4 to view booking details");
-        System.out.println("Press 5 to exit");
-        System.out.print("> ");
+        out.println("Select an option to get started!");
+        out.println("Press 1 to look at the ticket costs");
+        out.println("Press 2 to view seats layout");
+        out.println("Press 3 to book seats");
+        out.println("Press 4 to view booking details");
+        out.println("Press 5 to exit");
+        out.print("> ");
     }
 
     /**
      * Displays the venue layout with booked seats marked.
      *
-     * @param venue     The venue whose layout is to be displayed.
-     * @param bookings  A list of bookings.
-     * @param concertId The ID of the concert.
+     * @param venue The venue whose layout is to be displayed.
      */
-    public void showVenueLayout(Venue venue, ArrayList<Booking> bookings, String concertId) {
-        ArrayList<Booking> correspondingBookings = super.findBooking(bookings, concertId);
-        int size = 0;
-        ArrayList<ArrayList<TicketDetail>> allTicketDetails = new ArrayList<ArrayList<TicketDetail>>();
-        for (Booking b : correspondingBookings) {
-            allTicketDetails.add(b.getTicketDetails());
-            size += b.getTotalTickets();
-        }
-
+    public void showVenueLayout(Venue venue) {
+        SeatOccupancy occupancy = venue.getOccupancy();
         for (String eachRow : venue.getLayout()) {
             if (eachRow.trim().isEmpty()) {
-                System.out.println();
+                out.println();
                 continue;
             }
-            for (ArrayList<TicketDetail> allTd : allTicketDetails) {
-                for (TicketDetail td : allTd) {
-                    String rowNumber = td.getRowNumber();
-                    String seatNumber = td.getSeatNumber();
-                    String type = td.getZoneType();
+            out.println(occupancy.render(eachRow));
+        }
+    }
 
-                    if (type.equals("VIP")) {
-                        if (eachRow.substring(0, 2).equals("V" + rowNumber)) {
-                            eachRow = eachRow.replace("[" + seatNumber + "]", "[X]");
-                        }
-                    } else if (type.equals("SEATING")) {
-                        if (eachRow.substring(0, 2).equals("S" + rowNumber)) {
-                            eachRow = eachRow.replace("[" + seatNumber + "]", "[X]");
-                        }
-                    } else if (type.equals("STANDING")) {
-                        if (eachRow.substring(0, 2).equals("T" + rowNumber)) {
-                            eachRow = eachRow.replace("[" + seatNumber + "]", "[X]");
-                        }
-                    }
+    /**
+     * Sets the sequencer that makes the bookings of this customer's session.
+     * Without one, bookings are made on the session's own thread.
+     *
+     * @param sequencer The booking sequencer of the server.
+     */
+    public void setSequencer(BookingSequencer sequencer) {
+        this.sequencer = sequencer;
+    }
+
+    /**
+     * Books the seats a customer entered, through the sequencer if there is
+     * one.
+     *
+     * @param concert    The concert for which seats are to be booked.
+     * @param venue      The venue of the concert.
+     * @param bookings   A list of existing bookings.
+     * @param aisle      The aisle number, or only the zone letter to take the
+     *                   best seats available in the zone.
+     * @param seatNum    The starting seat number, or null with a zone letter.
+     * @param numTickets The number of seats to be booked.
+     * @return The new booking, or null if the seats are not available.
+     * @throws RuntimeException If the booking fails, the same exception it
+     *                          would throw without the sequencer.
+     */
+    private Booking book(Concert concert, Venue venue, BookingRepository bookings, String aisle, String seatNum,
+            int numTickets) {
+        if (sequencer != null) {
+            try {
+                return sequencer.submit(() -> claimSeats(concert, venue, bookings, aisle, seatNum, numTickets))
+                        .join();
+            } catch (CompletionException e) {
+                // the session handles the failure of the task, not of the future
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
                 }
+                throw e;
             }
-            System.out.println(eachRow);
+        }
+        Booking booking = claimSeats(concert, venue, bookings, aisle, seatNum, numTickets);
+        if (booking != null) {
+            bookings.add(booking);
+        }
+        return booking;
+    }
+
+    /**
+     * Claims the seats a customer entered and creates the booking for them.
+     * The seats are given back if the booking cannot be created.
+     *
+     * @param concert    The concert for which seats are to be booked.
+     * @param venue      The venue of the concert.
+     * @param bookings   A list of existing bookings.
+     * @param aisle      The aisle number, or only the zone letter.
+     * @param seatNum    The starting seat number, or null with a zone letter.
+     * @param numTickets The number of seats to be booked.
+     * @return The new booking, or null if the seats are not available.
+     */
+    private Booking claimSeats(Concert concert, Venue venue, BookingRepository bookings, String aisle,
+            String seatNum, int numTickets) {
+        ZoneType zone = ZoneType.fromLetter(aisle.charAt(0));
+        SeatFinder finder = venue.getSeatFinder(concert);
+        if (seatNum == null) {
+            // only a zone was given, so take the best seats available in it
+            int[] best = finder.claimBest(zone, numTickets);
+            if (best == null) {
+                return null;
+            }
+            return create(concert, venue, bookings, finder, aisle + best[0], best[1] + "", numTickets);
+        }
+        if (zone == null || !claim(finder, zone, aisle, seatNum, numTickets)) {
+            return null;
+        }
+        return create(concert, venue, bookings, finder, aisle, seatNum, numTickets);
+    }
+
+    /**
+     * Creates the booking for seats already claimed, giving the seats back if
+     * it fails.
+     *
+     * @param concert    The concert for which seats are booked.
+     * @param venue      The venue of the concert.
+     * @param bookings   A list of existing bookings.
+     * @param finder     The finder of free seats of the concert.
+     * @param aisle      The aisle number of the claimed seats.
+     * @param seatNum    The first claimed seat number.
+     * @param numTickets The number of seats claimed.
+     * @return The new booking.
+     */
+    private Booking create(Concert concert, Venue venue, BookingRepository bookings, SeatFinder finder,
+            String aisle, String seatNum, int numTickets) {
+        try {
+            return this.selectSeat(concert, venue, bookings, aisle, seatNum, numTickets);
+        } catch (RuntimeException | Error e) {
+            finder.release(ZoneType.fromLetter(aisle.charAt(0)), Integer.parseInt(aisle.substring(1)),
+                    Integer.parseInt(seatNum), numTickets);
+            throw e;
+        }
+    }
+
+    /**
+     * Claims the seats a customer entered if they exist and are free.
+     *
+     * @param finder     The finder of free seats of the concert.
+     * @param zone       The zone of the aisle.
+     * @param aisle      The aisle number, such as V2.
+     * @param seatNum    The starting seat number.
+     * @param numTickets The number of seats to be booked.
+     * @return True if the seats are now booked for the customer.
+     */
+    private boolean claim(SeatFinder finder, ZoneType zone, String aisle, String seatNum, int numTickets) {
+        try {
+            return finder.claim(zone, Integer.parseInt(aisle.substring(1)), Integer.parseInt(seatNum),
+                    numTickets);
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
 
@@ -155,54 +255,22 @@ public class Customer extends User {
      * @param numTickets The number of seats to be booked.
      * @return The new booking.
      */
-    public Booking selectSeat(Concert concert, Venue venue, ArrayList<Booking> bookings, String aisle, String seatNum,
+    public Booking selectSeat(Concert concert, Venue venue, BookingRepository bookings, String aisle, String seatNum,
             int numTickets) {
-        int max = 0;
-        for (Booking b : bookings) {
-            int bookingId = Integer.parseInt(b.getBookingId());
-            String customerId = b.getCustomerId();
-            String concertId = b.getConcertId();
-
-            if (this.customerId.equals(customerId) && concert.getConcertId().equals(concertId)) {
-                if (max < bookingId)
-                    max = bookingId;
-            }
-        }
-
-        int nextId = max + 1;
-        String[][] ticketDetail = new String[numTickets][5];
+        int nextId = bookings.nextBookingId(concert.getConcertId());
 
         int seatNumInteger = Integer.parseInt(seatNum);
         Booking newBooking = new Booking(nextId + "", this.customerId, this.name, concert.getConcertId(), numTickets);
 
         int ticketIdOffset = 1;
+        ZoneType zone = ZoneType.fromLetter(aisle.charAt(0));
+        String type = zone == null ? "" : zone.name();
+        // every ticket is priced from the same snapshot, even if the admin changes the prices meanwhile
+        PriceSnapshot prices = concert.getPrices();
         for (int i = 0; i < numTickets; i++) {
-            String type = "";
-            double[] priceList = new double[3];
-            switch (aisle.charAt(0)) {
-                case (STANDING):
-                    type = "STANDING";
-                    priceList = concert.getStandingPrice();
-                    break;
-                case (SEATING):
-                    type = "SEATING";
-                    priceList = concert.getSeatingPrice();
-                    break;
-                case (VIP):
-                    type = "VIP";
-                    priceList = concert.getVipPrice();
-                    break;
-            }
-            double price = 0;
-            if (seatNumInteger + i <= venue.getNumberOfLeftColumn()) {
-                price = priceList[0];
-            } else if (seatNumInteger + i <= venue.getNumberOfLeftColumn() + venue.getNumberOfMiddleColumn()) {
-                price = priceList[1];
-            } else {
-                price = priceList[2];
-            }
-
-            newBooking.addTicketDetail(ticketIdOffset + i + "", aisle.charAt(1) + "", (seatNumInteger + i) + "", type,
+            long price = zone == null ? 0
+                    : concert.getSeatPrice(venue.getTemplate(), prices, zone, seatNumInteger + i);
+            newBooking.addTicketDetail(ticketIdOffset + i + "", aisle.substring(1), (seatNumInteger + i) + "", type,
                     price);
         }
 
@@ -217,56 +285,39 @@ public class Customer extends User {
      * @param concertId  The ID of the concert.
      * @return A list of bookings by the customer for the concert.
      */
-    public ArrayList<Booking> findBookingByCustomer(ArrayList<Booking> bookings, String customerId, String concertId) {
-        ArrayList<Booking> bookingByCustomer = new ArrayList<Booking>();
-
-        for (Booking b : bookings) {
-            if (b.getCustomerId().equals(customerId) && b.getConcertId().equals(concertId)) {
-                bookingByCustomer.add(b);
-            }
-        }
-        return bookingByCustomer;
+    public ArrayList<Booking> findBookingByCustomer(BookingRepository bookings, String customerId,
+            String concertId) {
+        return bookings.findByCustomer(customerId, concertId);
     }
 
     /**
-     * Writes the booking data to a file.
+     * Writes the booking data to a file and syncs it to the disk. The bookings
+     * are marked as saved once the file is synced and closed.
      *
      * @param bookings    A list of bookings.
      * @param bookingPath The path to the booking file.
      */
-    public void writeToBookingFile(ArrayList<Booking> bookings, String bookingPath) {
-        PrintWriter pw = null;
-        try {
-            pw = new PrintWriter(new FileWriter(bookingPath));
+    public void writeToBookingFile(BookingRepository bookings, String bookingPath) {
+        ArrayList<Booking> written = new ArrayList<Booking>();
+        try (FileOutputStream file = new FileOutputStream(bookingPath); PrintWriter pw = new PrintWriter(file)) {
             for (Booking b : bookings) {
-                String bookingId = b.getBookingId();
-                String customerId = b.getCustomerId();
-                String customerName = b.getCustomerName();
-                String concertId = b.getConcertId();
-                int totalTickets = b.getTotalTickets();
-                ArrayList<TicketDetail> ticketDetail = b.getTicketDetails();
-                pw.print(bookingId + "," + customerId + "," + customerName + "," + concertId + "," + totalTickets);
-                for (int i = 0; i < totalTickets; i++) {
-                    pw.print(",");
-                    pw.print(ticketDetail.get(i).getTicketId());
-                    pw.print(",");
-                    pw.print(ticketDetail.get(i).getRowNumber());
-                    pw.print(",");
-                    pw.print(ticketDetail.get(i).getSeatNumber());
-                    pw.print(",");
-                    pw.print(ticketDetail.get(i).getZoneType());
-                    pw.print(",");
-                    pw.print((int) ticketDetail.get(i).getPrice());
-                }
-                pw.println();
-                pw.flush();
+                pw.println(b.toCsvLine());
+                written.add(b);
             }
+            if (pw.checkError()) {
+                throw new IOException(bookingPath);
+            }
+            file.getFD().sync();
         } catch (FileNotFoundException e) {
             System.err.println(bookingPath + "(No such file or directory)");
+            return;
         } catch (IOException e) {
             System.err.println(bookingPath + "(No such file or directory)");
+            return;
+        }
+        for (Booking b : written) {
+            b.markPersisted();
         }
-        pw.close();
     }
 
     /**
@@ -2,9 +2,9 @@ package user;
 
 import concert.*;
 import booking.*;
+import java.io.PrintStream;
 import java.util.Scanner;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * Abstract class representing a user.
@@ -13,38 +13,48 @@ import java.util.HashMap;
  * @author Yoshikazu Fujisaka
  */
 public abstract class User implements UserActions {
-    public static final Scanner scanner = new Scanner(System.in);
+    public static final Scanner CONSOLE = new Scanner(System.in);
+
+    // the input and output of the user's session, the console unless set
+    protected Scanner scanner = CONSOLE;
+    protected PrintStream out = System.out;
+
+    /**
+     * Sets the input and output of the user's session, such as a connection
+     * to the server.
+     *
+     * @param scanner The scanner that reads the user's input.
+     * @param out     The stream that shows output to the user.
+     */
+    public void setSession(Scanner scanner, PrintStream out) {
+        this.scanner = scanner;
+        this.out = out;
+    }
 
     /**
      * Displays the details of concert.
      *
      * @param concerts A list of concerts.
-     * @param venues   A map of concert IDs to their corresponding venues.
+     * @param venues   A catalog of the venues of each concert.
      * @param bookings A list of bookings.
      */
     @Override
-    public void showTimings(ArrayList<Concert> concerts, HashMap<String, Venue> venues, ArrayList<Booking> bookings) {
-        System.out.println(
+    public void showTimings(ArrayList<Concert> concerts, VenueCatalog venues, BookingRepository bookings) {
+        out.println(
                 "---------------------------------------------------------------------------------------------------------------------------");
-        System.out.printf("%-5s%-15s%-15s%-15s%-30s%-15s%-15s%-15s\n", "#", "Date", "Artist Name", "Timing",
+        out.printf("%-5s%-15s%-15s%-15s%-30s%-15s%-15s%-15s\n", "#", "Date", "Artist Name", "Timing",
                 "Venue Name", "Total Seats", "Seats Booked", "Seats Left");
-        System.out.println(
+        out.println(
                 "---------------------------------------------------------------------------------------------------------------------------");
 
         for (Concert concert : concerts) {
-            int numberOfBookedSeat = 0;
-
-            for (Booking b : bookings) {
-                if (concert.getConcertId().equals(b.getConcertId())) {
-                    numberOfBookedSeat += b.getTotalTickets();
-                }
-            }
-            System.out.printf("%-5s%-15s%-15s%-15s%-30s%-15s%-15s%-15s\n", concert.getConcertId(), concert.getDate(),
+            int numberOfBookedSeat = bookings.getSeatsSold(concert.getConcertId());
+            int totalSeats = venues.getTotalSeats(concert.getConcertId());
+            out.printf("%-5s%-15s%-15s%-15s%-30s%-15s%-15s%-15s\n", concert.getConcertId(), concert.getDate(),
                     concert.getArtist(), concert.getTiming(), concert.getVenue(),
-                    venues.get(concert.getConcertId()).getTotalSeats(), numberOfBookedSeat,
-                    venues.get(concert.getConcertId()).getTotalSeats() - numberOfBookedSeat);
+                    totalSeats, numberOfBookedSeat, totalSeats - numberOfBookedSeat);
         }
-        System.out.println(
+        out.println(
                 "---------------------------------------------------------------------------------------------------------------------------");
     }
 
@@ -55,13 +65,13 @@ public abstract class User implements UserActions {
      */
     @Override
     public void showTicketCost(Concert concert) {
-        System.out.printf("---------- %8s ----------%n", "STANDING");
+        out.printf("---------- %8s ----------%n", "STANDING");
         showTicketCostHelper(concert.getStandingPrice());
 
-        System.out.printf("---------- %8s ----------%n", "SEATING");
+        out.printf("---------- %8s ----------%n", "SEATING");
         showTicketCostHelper(concert.getSeatingPrice());
 
-        System.out.printf("---------- %8s ----------%n", "VIP");
+        out.printf("---------- %8s ----------%n", "VIP");
         showTicketCostHelper(concert.getVipPrice());
     }
 
@@ -72,10 +82,10 @@ public abstract class User implements UserActions {
      */
     @Override
     public void showTicketCostHelper(double[] price) {
-        System.out.println("Left Seats:   " + price[0]);
-        System.out.println("Center Seats: " + price[1]);
-        System.out.println("Right Seats:  " + price[2]);
-        System.out.println("------------------------------");
+        out.println("Left Seats:   " + price[0]);
+        out.println("Center Seats: " + price[1]);
+        out.println("Right Seats:  " + price[2]);
+        out.println("------------------------------");
     }
 
     /**
@@ -86,14 +96,8 @@ public abstract class User implements UserActions {
      * @return A list of bookings for the specified concert.
      */
     @Override
-    public ArrayList<Booking> findBooking(ArrayList<Booking> bookings, String concertId) {
-        ArrayList<Booking> correspondingBookings = new ArrayList<Booking>();
-        for (Booking booking : bookings) {
-            if (booking.getConcertId().equals(concertId)) {
-                correspondingBookings.add(booking);
-            }
-        }
-        return correspondingBookings;
+    public ArrayList<Booking> findBooking(BookingRepository bookings, String concertId) {
+        return bookings.findByConcert(concertId);
     }
 
     /**
@@ -106,27 +110,27 @@ public abstract class User implements UserActions {
     @Override
     public void showBooking(Concert concert, ArrayList<Booking> correspondingBookings) {
         if (correspondingBookings.size() > 0) {
-            System.out.println("Bookings");
-            System.out.println(
+            out.println("Bookings");
+            out.println(
                     "---------------------------------------------------------------------------------------------------------------------------");
-            System.out.printf("%-5s%-15s%-15s%-10s%-15s%-15s%-10s%n", "Id", "Concert Date", "Artist Name", "Timing",
+            out.printf("%-5s%-15s%-15s%-10s%-15s%-15s%-10s%n", "Id", "Concert Date", "Artist Name", "Timing",
                     "Venue Name", "Seats Booked", "Total Price");
-            System.out.println(
+            out.println(
                     "---------------------------------------------------------------------------------------------------------------------------");
 
             for (Booking b : correspondingBookings) {
-                System.out.printf("%-5s%-15s%-15s%-10s%-15s%-15s%-10s%n", b.getBookingId(), concert.getDate(),
+                out.printf("%-5s%-15s%-15s%-10s%-15s%-15s%-10s%n", b.getBookingId(), concert.getDate(),
                         concert.getArtist(), concert.getTiming(), concert.getVenue(), b.getTotalTickets(),
-                        calculateTotalPrice(b));
+                        Money.format(calculateTotalCents(b)));
             }
-            System.out.println(
+            out.println(
                     "---------------------------------------------------------------------------------------------------------------------------");
-            System.out.println();
+            out.println();
             showTicketInfo(correspondingBookings);
-            System.out.println();
+            out.println();
         } else {
-            System.out.println("No Bookings found for this concert");
-            System.out.println();
+            out.println("No Bookings found for this concert");
+            out.println();
         }
     }
 
@@ -137,17 +141,17 @@ public abstract class User implements UserActions {
      */
     @Override
     public void showTicketInfo(ArrayList<Booking> bookings) {
-        System.out.println("Ticket Info");
+        out.println("Ticket Info");
         for (Booking b : bookings) {
-            System.out.printf("############### Booking Id: %s ####################%n", b.getBookingId());
-            System.out.printf("%-5s%-15s%-15s%-10s%-10s%n", "Id", "Aisle Number", "Seat Number", "Seat Type", "Price");
-            System.out.println("##################################################");
+            out.printf("############### Booking Id: %s ####################%n", b.getBookingId());
+            out.printf("%-5s%-15s%-15s%-10s%-10s%n", "Id", "Aisle Number", "Seat Number", "Seat Type", "Price");
+            out.println("##################################################");
             for (TicketDetail td : b.getTicketDetails()) {
-                System.out.printf("%-5s%-15s%-15s%-10s%-10s%n", td.getTicketId(), td.getRowNumber(), td.getSeatNumber(),
-                        td.getZoneType(), td.getPrice());
+                out.printf("%-5s%-15s%-15s%-10s%-10s%n", td.getTicketId(), td.getRowNumber(), td.getSeatNumber(),
+                        td.getZoneType(), Money.format(td.getPriceCents()));
             }
-            System.out.println("##################################################");
-            System.out.println();
+            out.println("##################################################");
+            out.println();
         }
     }
 
@@ -159,10 +163,21 @@ public abstract class User implements UserActions {
      */
     @Override
     public double calculateTotalPrice(Booking booking) {
-        double totalPrice = 0;
-        for (TicketDetail td : booking.getTicketDetails()) {
-            totalPrice += td.getPrice();
+        return Money.toDouble(calculateTotalCents(booking));
+    }
+
+    /**
+     * Calculates the total price for a booking in cents.
+     *
+     * @param booking The booking for which the total price is to be calculated.
+     * @return The total price of the booking in cents.
+     */
+    public long calculateTotalCents(Booking booking) {
+        long totalCents = 0;
+        TicketStore tickets = booking.getTickets();
+        for (int i = 0; i < tickets.size(); i++) {
+            totalCents += tickets.getCents(i);
         }
-        return totalPrice;
+        return totalCents;
     }
 }
@@ -3,7 +3,6 @@ package user;
 import concert.*;
 import booking.*;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * Interface that defines actions for a user.
@@ -18,11 +17,11 @@ public interface UserActions {
      * Displays the main menu for the user and handles user input.
      *
      * @param concerts  A list of concerts.
-     * @param venues    A map of concert IDs to their corresponding venues.
+     * @param venues    A catalog of the venues of each concert.
      * @param bookings  A list of bookings.
      * @param concertId The ID of the concert.
      */
-    void mainMenu(ArrayList<Concert> concerts, HashMap<String, Venue> venues, ArrayList<Booking> bookings,
+    void mainMenu(ArrayList<Concert> concerts, VenueCatalog venues, BookingRepository bookings,
             int... concertId);
 
     /**
@@ -34,10 +33,10 @@ public interface UserActions {
      * Displays the timings and availability of concerts.
      *
      * @param concerts A list of concerts.
-     * @param venues   A map of concert IDs to their corresponding venues.
+     * @param venues   A catalog of the venues of each concert.
      * @param bookings A list of bookings.
      */
-    void showTimings(ArrayList<Concert> concerts, HashMap<String, Venue> venues, ArrayList<Booking> bookings);
+    void showTimings(ArrayList<Concert> concerts, VenueCatalog venues, BookingRepository bookings);
 
     /**
      * Displays the ticket costs for different zones in a concert.
@@ -61,7 +60,7 @@ public interface UserActions {
      * @param concertId The ID of the concert for which bookings are to be found.
      * @return A list of bookings for the specified concert.
      */
-    ArrayList<Booking> findBooking(ArrayList<Booking> bookings, String concertId);
+    ArrayList<Booking> findBooking(BookingRepository bookings, String concertId);
 
     /**
      * Displays booking details for a specific concert.